@@ -0,0 +1,208 @@
+package com.chipmandal.encoding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Base for encodings whose characters are all ASCII. An implementation supplies the encode and
+ * decode kernels for each kind of source and destination and the length bounds, the methods of
+ * BaseEncoding are built on them here without copying through temporary arrays.
+ */
+public abstract class AsciiBaseEncoding implements BaseEncoding {
+
+    /**
+     * Encodes src[offset, offset + length) into dst at dstOffset, which has room for encodedLength(length).
+     * @return position after the last character written
+     */
+    protected abstract int encodeKernel(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    protected abstract int encodeKernel(byte[] src, int offset, int length, char[] dst, int dstOffset);
+
+    /**
+     * Same as above with absolute get and put, for direct buffers.
+     */
+    protected abstract int encodeKernel(ByteBuffer src, int offset, int length, ByteBuffer dst, int dstOffset);
+
+    /**
+     * Decodes the characters src[offset, offset + length) into dst at dstOffset, which has
+     * room for maxDecodedLength(length). Throws DecodingException with the index into src.
+     * @return position after the last byte written
+     */
+    protected abstract int decodeKernel(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    protected abstract int decodeKernel(char[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    protected abstract int decodeKernel(CharSequence src, int offset, int length, byte[] dst, int dstOffset);
+
+    /**
+     * Same as above with absolute get and put, for direct buffers.
+     */
+    protected abstract int decodeKernel(ByteBuffer src, int offset, int length, ByteBuffer dst, int dstOffset);
+
+    /**
+     * Digit of character c in reverse, -1 if c is outside the alphabet or above 255.
+     */
+    protected static int digit(byte[] reverse, int c) {
+        return reverse[c & 0xFF] | ((255 - c) >> 31);
+    }
+
+    /**
+     * Same as encodeToAsciiBytes, there is no separate raw format.
+     */
+    @Override
+    public byte[] encode(byte[] input) {
+        return encodeToAsciiBytes(input);
+    }
+
+    @Override
+    public byte[] decode(byte[] input) {
+        return decodeAscii(input);
+    }
+
+    @Override
+    public String encodeString(byte[] input) {
+        if ( input == null || input.length == 0 ) {
+            return "";
+        }
+        byte[] output = new byte[encodedLength(input.length)];
+        int written = encodeKernel(input, 0, input.length, output, 0);
+        return new String(output, 0, written, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public byte[] encodeToAsciiBytes(byte[] input) {
+        if ( input == null || input.length == 0 ) {
+            return new byte[0];
+        }
+        byte[] output = new byte[encodedLength(input.length)];
+        int written = encodeKernel(input, 0, input.length, output, 0);
+        return written == output.length ? output : Arrays.copyOf(output, written);
+    }
+
+    @Override
+    public byte[] decodeString(String input) {
+        if ( input == null || input.length() == 0 ) {
+            return new byte[0];
+        }
+        byte[] output = new byte[maxDecodedLength(input.length())];
+        int written = decodeKernel(input, 0, input.length(), output, 0);
+        return written == output.length ? output : Arrays.copyOf(output, written);
+    }
+
+    @Override
+    public byte[] decodeAscii(byte[] asciiChars) {
+        if ( asciiChars == null || asciiChars.length == 0 ) {
+            return new byte[0];
+        }
+        byte[] output = new byte[maxDecodedLength(asciiChars.length)];
+        int written = decodeKernel(asciiChars, 0, asciiChars.length, output, 0);
+        return written == output.length ? output : Arrays.copyOf(output, written);
+    }
+
+    @Override
+    public int encodeInto(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, encodedLength(length));
+        return encodeKernel(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    @Override
+    public int encodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, encodedLength(length));
+        return encodeKernel(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    @Override
+    public int decodeInto(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length(), offset, length);
+        Checks.checkSpace(dst.length, dstOffset, maxDecodedLength(length));
+        return decodeKernel(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    @Override
+    public int decodeInto(char[] src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, maxDecodedLength(length));
+        return decodeKernel(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    @Override
+    public int decodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, maxDecodedLength(length));
+        return decodeKernel(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    /**
+     * Heap buffers go through the array kernels, anything else through the absolute get and put ones.
+     */
+    @Override
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int needed = encodedLength(length);
+        if ( dst.remaining() < needed ) {
+            throw new IllegalArgumentException("Output buffer too small, needs " + needed + " but has " + dst.remaining());
+        }
+        int written;
+        if ( src.hasArray() && dst.hasArray() ) {
+            int arrayOut = dst.arrayOffset() + dst.position();
+            written = encodeKernel(src.array(), src.arrayOffset() + src.position(), length, dst.array(), arrayOut) - arrayOut;
+            dst.position(dst.position() + written);
+        } else {
+            written = encodeKernel(src, src.position(), length, dst, dst.position()) - dst.position();
+            dst.position(dst.position() + written);
+        }
+        src.position(src.limit());
+        return written;
+    }
+
+    @Override
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int needed = maxDecodedLength(length);
+        if ( dst.remaining() < needed ) {
+            throw new IllegalArgumentException("Output buffer too small, needs " + needed + " but has " + dst.remaining());
+        }
+        int written;
+        if ( src.hasArray() && dst.hasArray() ) {
+            int arrayOut = dst.arrayOffset() + dst.position();
+            written = decodeKernel(src.array(), src.arrayOffset() + src.position(), length, dst.array(), arrayOut) - arrayOut;
+            dst.position(dst.position() + written);
+        } else {
+            written = decodeKernel(src, src.position(), length, dst, dst.position()) - dst.position();
+            dst.position(dst.position() + written);
+        }
+        src.position(src.limit());
+        return written;
+    }
+
+    /**
+     * Digit of every character 0 - 255, -1 for characters outside the alphabet.
+     * The alphabet has to be distinct characters in 0x21 - 0x7E.
+     */
+    static byte[] reverseTable(char[] alphabet, int size) {
+        if ( alphabet.length != size ) {
+            throw new IllegalArgumentException("Size of alphabet has to be " + size);
+        }
+        byte[] reverse = new byte[256];
+        Arrays.fill(reverse, (byte) -1);
+        for ( int i = 0; i < alphabet.length; i++ ) {
+            char c = alphabet[i];
+            if ( c < 33 || c > 126 || reverse[c] >= 0 ) {
+                throw new IllegalArgumentException("Invalid or duplicate byte in alphabet " + c);
+            }
+            reverse[c] = (byte) i;
+        }
+        return reverse;
+    }
+
+    static byte[] asciiAlphabet(char[] alphabet) {
+        byte[] ascii = new byte[alphabet.length];
+        for ( int i = 0; i < alphabet.length; i++ ) {
+            ascii[i] = (byte) alphabet[i];
+        }
+        return ascii;
+    }
+}
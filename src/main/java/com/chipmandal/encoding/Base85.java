@@ -0,0 +1,340 @@
+package com.chipmandal.encoding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base85: every 4 bytes, read as a big endian unsigned int, become 5 digits of base 85.
+ * A final partial block of n bytes is padded with zeros and written as its first n + 1 digits,
+ * as Ascii85 does. Z85 (ZeroMQ) and Ascii85 only differ in the alphabet. No delimiters and no
+ * 'z' shortcut are written or accepted.
+ */
+public final class Base85 extends AsciiBaseEncoding {
+
+    public static final char[] Z85_ALPHABET =
+            "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ.-:+=^!/*?&<>()[]{}@%$#".toCharArray();
+
+    public static final char[] ASCII85_ALPHABET =
+            "!\"#$%&'()*+,-./0123456789:;<=>?@ABCDEFGHIJKLMNOPQRSTUVWXYZ[\\]^_`abcdefghijklmnopqrstu".toCharArray();
+
+    public static final Base85 Z85 = new Base85(Z85_ALPHABET);
+    public static final Base85 ASCII85 = new Base85(ASCII85_ALPHABET);
+
+    private final byte[] alphabet;
+    private final char[] alphabetChars;
+    private final byte[] reverse;
+
+    //85^4 down to 85^0, the weights of the 5 digits of a block
+    private static final long[] WEIGHTS = {85L * 85 * 85 * 85, 85 * 85 * 85, 85 * 85, 85, 1};
+
+    /**
+     * An alphabet is 85 distinct characters in the range 0x21 to 0x7E.
+     */
+    public Base85(char[] useAlphabet) {
+        reverse = reverseTable(useAlphabet, 85);
+        alphabet = asciiAlphabet(useAlphabet);
+        alphabetChars = useAlphabet.clone();
+    }
+
+    @Override
+    public int encodedLength(int inputBytes) {
+        int rem = inputBytes % 4;
+        long length = (inputBytes / 4) * 5L + (rem == 0 ? 0 : rem + 1);
+        if ( length > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException("Input too large, encoded length " + length + " does not fit an array");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Exact for valid input. A length of 1 mod 5 can not be produced by the encoder.
+     */
+    @Override
+    public int maxDecodedLength(int inputChars) {
+        int rem = inputChars % 5;
+        return (inputChars / 5) * 4 + (rem <= 1 ? 0 : rem - 1);
+    }
+
+    @Override
+    protected int encodeKernel(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 4 <= end; i += 4 ) {
+            long block = ((long) (src[i] & 0xFF) << 24)
+                    | ((src[i + 1] & 0xFF) << 16)
+                    | ((src[i + 2] & 0xFF) << 8)
+                    | (src[i + 3] & 0xFF);
+            //Only the first division needs a long, the quotient fits an int
+            int q = (int) (block / 85);
+            dst[outPos + 4] = alphabet[(int) (block - q * 85L)];
+            dst[outPos + 3] = alphabet[q % 85];
+            q /= 85;
+            dst[outPos + 2] = alphabet[q % 85];
+            q /= 85;
+            dst[outPos + 1] = alphabet[q % 85];
+            dst[outPos] = alphabet[q / 85];
+            outPos += 5;
+        }
+        int rem = end - i;
+        if ( rem > 0 ) {
+            long block = 0;
+            for ( int k = 0; k < 4; k++ ) {
+                block = (block << 8) | (k < rem ? src[i + k] & 0xFF : 0);
+            }
+            for ( int k = 0; k <= rem; k++ ) {
+                dst[outPos++] = alphabet[digitAt(block, k)];
+            }
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int encodeKernel(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 4 <= end; i += 4 ) {
+            long block = ((long) (src[i] & 0xFF) << 24)
+                    | ((src[i + 1] & 0xFF) << 16)
+                    | ((src[i + 2] & 0xFF) << 8)
+                    | (src[i + 3] & 0xFF);
+            int q = (int) (block / 85);
+            dst[outPos + 4] = alphabetChars[(int) (block - q * 85L)];
+            dst[outPos + 3] = alphabetChars[q % 85];
+            q /= 85;
+            dst[outPos + 2] = alphabetChars[q % 85];
+            q /= 85;
+            dst[outPos + 1] = alphabetChars[q % 85];
+            dst[outPos] = alphabetChars[q / 85];
+            outPos += 5;
+        }
+        int rem = end - i;
+        if ( rem > 0 ) {
+            long block = 0;
+            for ( int k = 0; k < 4; k++ ) {
+                block = (block << 8) | (k < rem ? src[i + k] & 0xFF : 0);
+            }
+            for ( int k = 0; k <= rem; k++ ) {
+                dst[outPos++] = alphabetChars[digitAt(block, k)];
+            }
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int encodeKernel(ByteBuffer src, int offset, int length, ByteBuffer dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 4 <= end; i += 4 ) {
+            //Byte by byte, getInt would follow the order set on the buffer
+            long block = ((long) (src.get(i) & 0xFF) << 24)
+                    | ((src.get(i + 1) & 0xFF) << 16)
+                    | ((src.get(i + 2) & 0xFF) << 8)
+                    | (src.get(i + 3) & 0xFF);
+            int q = (int) (block / 85);
+            dst.put(outPos + 4, alphabet[(int) (block - q * 85L)]);
+            dst.put(outPos + 3, alphabet[q % 85]);
+            q /= 85;
+            dst.put(outPos + 2, alphabet[q % 85]);
+            q /= 85;
+            dst.put(outPos + 1, alphabet[q % 85]);
+            dst.put(outPos, alphabet[q / 85]);
+            outPos += 5;
+        }
+        int rem = end - i;
+        if ( rem > 0 ) {
+            long block = 0;
+            for ( int k = 0; k < 4; k++ ) {
+                block = (block << 8) | (k < rem ? src.get(i + k) & 0xFF : 0);
+            }
+            for ( int k = 0; k <= rem; k++ ) {
+                dst.put(outPos++, alphabet[digitAt(block, k)]);
+            }
+        }
+        return outPos;
+    }
+
+    /**
+     * Digit k of the 5 digits of block, most significant first.
+     */
+    private static int digitAt(long block, int k) {
+        return (int) (block / WEIGHTS[k] % 85);
+    }
+
+    @Override
+    protected int decodeKernel(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 5 <= end; i += 5 ) {
+            int d0 = digit(reverse, src[i] & 0xFF);
+            int d1 = digit(reverse, src[i + 1] & 0xFF);
+            int d2 = digit(reverse, src[i + 2] & 0xFF);
+            int d3 = digit(reverse, src[i + 3] & 0xFF);
+            int d4 = digit(reverse, src[i + 4] & 0xFF);
+            long block = blockValue(d0, d1, d2, d3, d4);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, d4);
+            }
+            outPos = putBytes(block, 4, dst, outPos);
+        }
+        int rem = checkTail(end - i, i);
+        if ( rem > 0 ) {
+            //Padding with the highest digit rounds the dropped bytes back up to their value
+            int d0 = digit(reverse, src[i] & 0xFF);
+            int d1 = digit(reverse, src[i + 1] & 0xFF);
+            int d2 = (rem > 2) ? digit(reverse, src[i + 2] & 0xFF) : 84;
+            int d3 = (rem > 3) ? digit(reverse, src[i + 3] & 0xFF) : 84;
+            long block = blockValue(d0, d1, d2, d3, 84);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, 84);
+            }
+            outPos = putBytes(block, rem - 1, dst, outPos);
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(char[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 5 <= end; i += 5 ) {
+            int d0 = digit(reverse, src[i]);
+            int d1 = digit(reverse, src[i + 1]);
+            int d2 = digit(reverse, src[i + 2]);
+            int d3 = digit(reverse, src[i + 3]);
+            int d4 = digit(reverse, src[i + 4]);
+            long block = blockValue(d0, d1, d2, d3, d4);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, d4);
+            }
+            outPos = putBytes(block, 4, dst, outPos);
+        }
+        int rem = checkTail(end - i, i);
+        if ( rem > 0 ) {
+            int d0 = digit(reverse, src[i]);
+            int d1 = digit(reverse, src[i + 1]);
+            int d2 = (rem > 2) ? digit(reverse, src[i + 2]) : 84;
+            int d3 = (rem > 3) ? digit(reverse, src[i + 3]) : 84;
+            long block = blockValue(d0, d1, d2, d3, 84);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, 84);
+            }
+            outPos = putBytes(block, rem - 1, dst, outPos);
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 5 <= end; i += 5 ) {
+            int d0 = digit(reverse, src.charAt(i));
+            int d1 = digit(reverse, src.charAt(i + 1));
+            int d2 = digit(reverse, src.charAt(i + 2));
+            int d3 = digit(reverse, src.charAt(i + 3));
+            int d4 = digit(reverse, src.charAt(i + 4));
+            long block = blockValue(d0, d1, d2, d3, d4);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, d4);
+            }
+            outPos = putBytes(block, 4, dst, outPos);
+        }
+        int rem = checkTail(end - i, i);
+        if ( rem > 0 ) {
+            int d0 = digit(reverse, src.charAt(i));
+            int d1 = digit(reverse, src.charAt(i + 1));
+            int d2 = (rem > 2) ? digit(reverse, src.charAt(i + 2)) : 84;
+            int d3 = (rem > 3) ? digit(reverse, src.charAt(i + 3)) : 84;
+            long block = blockValue(d0, d1, d2, d3, 84);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, 84);
+            }
+            outPos = putBytes(block, rem - 1, dst, outPos);
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(ByteBuffer src, int offset, int length, ByteBuffer dst, int dstOffset) {
+        int i = offset;
+        int end = offset + length;
+        int outPos = dstOffset;
+        for ( ; i + 5 <= end; i += 5 ) {
+            int d0 = digit(reverse, src.get(i) & 0xFF);
+            int d1 = digit(reverse, src.get(i + 1) & 0xFF);
+            int d2 = digit(reverse, src.get(i + 2) & 0xFF);
+            int d3 = digit(reverse, src.get(i + 3) & 0xFF);
+            int d4 = digit(reverse, src.get(i + 4) & 0xFF);
+            long block = blockValue(d0, d1, d2, d3, d4);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, d4);
+            }
+            outPos = putBytes(block, 4, dst, outPos);
+        }
+        int rem = checkTail(end - i, i);
+        if ( rem > 0 ) {
+            int d0 = digit(reverse, src.get(i) & 0xFF);
+            int d1 = digit(reverse, src.get(i + 1) & 0xFF);
+            int d2 = (rem > 2) ? digit(reverse, src.get(i + 2) & 0xFF) : 84;
+            int d3 = (rem > 3) ? digit(reverse, src.get(i + 3) & 0xFF) : 84;
+            long block = blockValue(d0, d1, d2, d3, 84);
+            if ( block < 0 ) {
+                throw invalidBlock(i, d0, d1, d2, d3, 84);
+            }
+            outPos = putBytes(block, rem - 1, dst, outPos);
+        }
+        return outPos;
+    }
+
+    /**
+     * Value of a block of 5 digits, -1 if a digit is invalid or the value does not fit 32 bits.
+     */
+    private static long blockValue(int d0, int d1, int d2, int d3, int d4) {
+        if ( (d0 | d1 | d2 | d3 | d4) < 0 ) {
+            return -1;
+        }
+        long block = (((d0 * 85L + d1) * 85 + d2) * 85 + d3) * 85 + d4;
+        return (block > 0xFFFFFFFFL) ? -1 : block;
+    }
+
+    /**
+     * Slow path once blockValue has failed for the block at offset.
+     */
+    private static DecodingException invalidBlock(int offset, int... digits) {
+        for ( int k = 0; k < digits.length; k++ ) {
+            if ( digits[k] < 0 ) {
+                return new DecodingException("Illegal character", offset + k);
+            }
+        }
+        return new DecodingException("Block value out of range", offset);
+    }
+
+    private static int checkTail(int rem, int offset) {
+        if ( rem == 1 ) {
+            throw new DecodingException("Single character in last block", offset);
+        }
+        return rem;
+    }
+
+    /**
+     * Writes the first count bytes of the big endian block.
+     */
+    private static int putBytes(long block, int count, byte[] dst, int outPos) {
+        for ( int k = 0; k < count; k++ ) {
+            dst[outPos++] = (byte) (block >>> (24 - 8 * k));
+        }
+        return outPos;
+    }
+
+    private static int putBytes(long block, int count, ByteBuffer dst, int outPos) {
+        for ( int k = 0; k < count; k++ ) {
+            dst.put(outPos++, (byte) (block >>> (24 - 8 * k)));
+        }
+        return outPos;
+    }
+}
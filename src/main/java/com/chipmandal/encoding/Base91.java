@@ -0,0 +1,272 @@
+package com.chipmandal.encoding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * basE91: bits are taken 13 at a time, or 14 when the 13 bit value is 88 or less, and every
+ * value is written as two base 91 digits, low digit first. Denser than Base94 on average at the
+ * cost of variable length output, so encodedLength and maxDecodedLength are upper bounds here.
+ */
+public final class Base91 extends AsciiBaseEncoding {
+
+    public static final char[] BASE91_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!#$%&()*+,./:;<=>?@[]^_`{|}~\"".toCharArray();
+
+    public static final Base91 BASE91 = new Base91(BASE91_ALPHABET);
+
+    private final byte[] alphabet;
+    private final char[] alphabetChars;
+    private final byte[] reverse;
+
+    /**
+     * An alphabet is 91 distinct characters in the range 0x21 to 0x7E.
+     */
+    public Base91(char[] useAlphabet) {
+        reverse = reverseTable(useAlphabet, 91);
+        alphabet = asciiAlphabet(useAlphabet);
+        alphabetChars = useAlphabet.clone();
+    }
+
+    /**
+     * Upper bound, every 2 characters carry at least 13 bits and the rest at most 2 characters.
+     */
+    @Override
+    public int encodedLength(int inputBytes) {
+        if ( inputBytes == 0 ) {
+            return 0;
+        }
+        long length = (inputBytes * 8L / 13) * 2 + 2;
+        if ( length > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException("Input too large, encoded length " + length + " does not fit an array");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Upper bound, every 2 characters carry at most 14 bits and a last single character one byte.
+     */
+    @Override
+    public int maxDecodedLength(int inputChars) {
+        return (int) ((inputChars / 2) * 14L / 8) + (inputChars % 2);
+    }
+
+    @Override
+    protected int encodeKernel(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        for ( int i = offset, end = offset + length; i < end; i++ ) {
+            acc |= (src[i] & 0xFF) << bits;
+            bits += 8;
+            if ( bits > 13 ) {
+                int val = acc & 0x1FFF;
+                if ( val > 88 ) {
+                    acc >>>= 13;
+                    bits -= 13;
+                } else {
+                    val = acc & 0x3FFF;
+                    acc >>>= 14;
+                    bits -= 14;
+                }
+                dst[outPos] = alphabet[val % 91];
+                dst[outPos + 1] = alphabet[val / 91];
+                outPos += 2;
+            }
+        }
+        if ( bits > 0 ) {
+            dst[outPos++] = alphabet[acc % 91];
+            if ( bits > 7 || acc > 90 ) {
+                dst[outPos++] = alphabet[acc / 91];
+            }
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int encodeKernel(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        for ( int i = offset, end = offset + length; i < end; i++ ) {
+            acc |= (src[i] & 0xFF) << bits;
+            bits += 8;
+            if ( bits > 13 ) {
+                int val = acc & 0x1FFF;
+                if ( val > 88 ) {
+                    acc >>>= 13;
+                    bits -= 13;
+                } else {
+                    val = acc & 0x3FFF;
+                    acc >>>= 14;
+                    bits -= 14;
+                }
+                dst[outPos] = alphabetChars[val % 91];
+                dst[outPos + 1] = alphabetChars[val / 91];
+                outPos += 2;
+            }
+        }
+        if ( bits > 0 ) {
+            dst[outPos++] = alphabetChars[acc % 91];
+            if ( bits > 7 || acc > 90 ) {
+                dst[outPos++] = alphabetChars[acc / 91];
+            }
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int encodeKernel(ByteBuffer src, int offset, int length, ByteBuffer dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        for ( int i = offset, end = offset + length; i < end; i++ ) {
+            acc |= (src.get(i) & 0xFF) << bits;
+            bits += 8;
+            if ( bits > 13 ) {
+                int val = acc & 0x1FFF;
+                if ( val > 88 ) {
+                    acc >>>= 13;
+                    bits -= 13;
+                } else {
+                    val = acc & 0x3FFF;
+                    acc >>>= 14;
+                    bits -= 14;
+                }
+                dst.put(outPos, alphabet[val % 91]);
+                dst.put(outPos + 1, alphabet[val / 91]);
+                outPos += 2;
+            }
+        }
+        if ( bits > 0 ) {
+            dst.put(outPos++, alphabet[acc % 91]);
+            if ( bits > 7 || acc > 90 ) {
+                dst.put(outPos++, alphabet[acc / 91]);
+            }
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        int i = offset;
+        for ( int end = offset + length - 1; i < end; i += 2 ) {
+            int low = digit(reverse, src[i] & 0xFF);
+            int high = digit(reverse, src[i + 1] & 0xFF);
+            if ( (low | high) < 0 ) {
+                throw new DecodingException("Illegal character", low < 0 ? i : i + 1);
+            }
+            int val = low + high * 91;
+            acc |= val << bits;
+            bits += (val & 0x1FFF) > 88 ? 13 : 14;
+            do {
+                dst[outPos++] = (byte) acc;
+                acc >>>= 8;
+                bits -= 8;
+            } while ( bits > 7 );
+        }
+        if ( i < offset + length ) {
+            int val = digit(reverse, src[i] & 0xFF);
+            if ( val < 0 ) {
+                throw new DecodingException("Illegal character", i);
+            }
+            dst[outPos++] = (byte) (acc | val << bits);
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(char[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        int i = offset;
+        for ( int end = offset + length - 1; i < end; i += 2 ) {
+            int low = digit(reverse, src[i]);
+            int high = digit(reverse, src[i + 1]);
+            if ( (low | high) < 0 ) {
+                throw new DecodingException("Illegal character", low < 0 ? i : i + 1);
+            }
+            int val = low + high * 91;
+            acc |= val << bits;
+            bits += (val & 0x1FFF) > 88 ? 13 : 14;
+            do {
+                dst[outPos++] = (byte) acc;
+                acc >>>= 8;
+                bits -= 8;
+            } while ( bits > 7 );
+        }
+        if ( i < offset + length ) {
+            int val = digit(reverse, src[i]);
+            if ( val < 0 ) {
+                throw new DecodingException("Illegal character", i);
+            }
+            dst[outPos++] = (byte) (acc | val << bits);
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        int i = offset;
+        for ( int end = offset + length - 1; i < end; i += 2 ) {
+            int low = digit(reverse, src.charAt(i));
+            int high = digit(reverse, src.charAt(i + 1));
+            if ( (low | high) < 0 ) {
+                throw new DecodingException("Illegal character", low < 0 ? i : i + 1);
+            }
+            int val = low + high * 91;
+            acc |= val << bits;
+            bits += (val & 0x1FFF) > 88 ? 13 : 14;
+            do {
+                dst[outPos++] = (byte) acc;
+                acc >>>= 8;
+                bits -= 8;
+            } while ( bits > 7 );
+        }
+        if ( i < offset + length ) {
+            int val = digit(reverse, src.charAt(i));
+            if ( val < 0 ) {
+                throw new DecodingException("Illegal character", i);
+            }
+            dst[outPos++] = (byte) (acc | val << bits);
+        }
+        return outPos;
+    }
+
+    @Override
+    protected int decodeKernel(ByteBuffer src, int offset, int length, ByteBuffer dst, int dstOffset) {
+        int outPos = dstOffset;
+        int acc = 0;
+        int bits = 0;
+        int i = offset;
+        for ( int end = offset + length - 1; i < end; i += 2 ) {
+            int low = digit(reverse, src.get(i) & 0xFF);
+            int high = digit(reverse, src.get(i + 1) & 0xFF);
+            if ( (low | high) < 0 ) {
+                throw new DecodingException("Illegal character", low < 0 ? i : i + 1);
+            }
+            int val = low + high * 91;
+            acc |= val << bits;
+            bits += (val & 0x1FFF) > 88 ? 13 : 14;
+            do {
+                dst.put(outPos++, (byte) acc);
+                acc >>>= 8;
+                bits -= 8;
+            } while ( bits > 7 );
+        }
+        if ( i < offset + length ) {
+            int val = digit(reverse, src.get(i) & 0xFF);
+            if ( val < 0 ) {
+                throw new DecodingException("Illegal character", i);
+            }
+            dst.put(outPos++, (byte) (acc | val << bits));
+        }
+        return outPos;
+    }
+}
@@ -1,11 +1,58 @@
 package com.chipmandal.encoding;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntUnaryOperator;
 
 public class Base94 implements BaseEncoding{
 
     private final char[] alphabet;
+    //Digit of every character 0 - 255, -1 for characters outside the alphabet
     private final byte[] reverse;
+    private final Strategy strategy;
+    private final boolean pooled;
+
+    //Only set for Strategy.LOOKUP_TABLE, see PairTables
+    private final char[] encodePairs;
+    private final short[] decodePairs;
+
+    //Only set for Strategy.VECTOR when the vector kernels are available
+    private final BlockKernel vector;
+
+    /**
+     * How a 13 bit group is turned into its two characters and back.
+     */
+    public enum Strategy {
+        /** Divide and modulo by 94 and look up each character in the alphabet. */
+        ARITHMETIC,
+        /** One load from an 8192 entry pair table to encode, one from a 128 x 128 table to decode. 64 KB per alphabet. */
+        LOOKUP_TABLE,
+        /**
+         * Encodes whole blocks into ASCII byte arrays through jdk.incubator.vector, everything else
+         * as ARITHMETIC. Behaves as ARITHMETIC when isVectorAvailable() is false.
+         */
+        VECTOR
+    }
+
+    /**
+     * Default for pooledBuffers of new instances, including BaseEncoding.Base94, so existing
+     * callers can turn pooling on without a code change.
+     */
+    public static final boolean POOLED_BUFFERS_DEFAULT = Boolean.getBoolean("com.chipmandal.encoding.pooledBuffers");
 
     /**
      * If you want to use a different alphabet.
@@ -13,7 +60,82 @@ public class Base94 implements BaseEncoding{
      * @param useAlphabet
      */
     public Base94(char[] useAlphabet) {
+        this(useAlphabet, Strategy.ARITHMETIC);
+    }
+
+    /**
+     * Different alphabet and strategy. The tables for LOOKUP_TABLE are built the first time
+     * an alphabet is used with it, and shared with every later instance for that alphabet.
+     */
+    public Base94(char[] useAlphabet, Strategy useStrategy) {
+        this(validAlphabet(useAlphabet), null, useStrategy, POOLED_BUFFERS_DEFAULT);
+    }
+
+    /**
+     * Shares the alphabet and reverse table of an existing instance when reverse is given.
+     */
+    private Base94(char[] useAlphabet, byte[] useReverse, Strategy useStrategy, boolean usePooled) {
+        alphabet = useAlphabet;
+        reverse = (useReverse == null) ? reverseTable(useAlphabet) : useReverse;
+        strategy = useStrategy;
+        pooled = usePooled;
+        PairTables tables = (useStrategy == Strategy.LOOKUP_TABLE) ? PairTables.forAlphabet(alphabet, reverse) : null;
+        encodePairs = (tables == null) ? null : tables.encode;
+        decodePairs = (tables == null) ? null : tables.decode;
+        vector = (useStrategy == Strategy.VECTOR) ? vectorKernel(alphabet) : null;
+    }
+
+    //Set to false to never load the vector kernel
+    private static final String VECTOR_PROPERTY = "com.chipmandal.encoding.vector";
+
+    private static final Constructor<?> VECTOR_KERNEL = findVectorKernel();
+
+    /**
+     * Base94Vector is only there when built with the vector profile, and only links on JDK 17+
+     * started with --add-modules jdk.incubator.vector. Without the class or the module, or when
+     * Base94Vector.isSupported() says the hardware lacks 256 bit vectors, the scalar path stays.
+     */
+    private static Constructor<?> findVectorKernel() {
+        if ( !Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true")) ) {
+            return null;
+        }
+        Class<?> kernel;
+        try {
+            kernel = Class.forName("com.chipmandal.encoding.Base94Vector", false, Base94.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            Method isSupported = kernel.getDeclaredMethod("isSupported");
+            if ( !(Boolean) isSupported.invoke(null) ) {
+                return null;
+            }
+            return kernel.getDeclaredConstructor(char[].class);
+        } catch (ReflectiveOperationException | NoClassDefFoundError e) {
+            //NoClassDefFoundError: jdk.incubator.vector is not in the module graph
+            return null;
+        }
+    }
+
+    private static BlockKernel vectorKernel(char[] alphabet) {
+        if ( VECTOR_KERNEL == null ) {
+            return null;
+        }
+        try {
+            return (BlockKernel) VECTOR_KERNEL.newInstance(alphabet);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
 
+    /**
+     * True if Strategy.VECTOR runs the Vector API encoder here rather than falling back to ARITHMETIC.
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    private static char[] validAlphabet(char[] useAlphabet) {
         if ( useAlphabet.length == 94 ) {
             char[] chekbytes = new char[128];
             for ( int i=0; i <  useAlphabet.length; i++) {
@@ -26,12 +148,102 @@ public class Base94 implements BaseEncoding{
         } else {
             throw new IllegalArgumentException("Size of alphabet has to be 94");
         }
+        return Arrays.copyOf(useAlphabet, 94);
+    }
 
-        alphabet = Arrays.copyOf(useAlphabet, 94);
-        reverse = new byte[127];
+    private static byte[] reverseTable(char[] alphabet) {
+        byte[] reverse = new byte[256];
+        Arrays.fill(reverse, (byte) -1);
         for ( int i = 0; i < alphabet.length; i++) {
             reverse[alphabet[i]] = (byte) i;
         }
+        return reverse;
+    }
+
+    /**
+     * Number of alphabets forAlphabet (and the lookup tables) keep around.
+     */
+    public static final int CACHE_SIZE = 64;
+
+    private static final BoundedCache<String, Base94> ENGINES = new BoundedCache<>(CACHE_SIZE);
+
+    /**
+     * Shared instance for an alphabet. The alphabet is validated and its tables built the first
+     * time it is seen, later calls return the cached instance. Instances are immutable and
+     * thread safe, so one per alphabet is enough for the whole application.
+     */
+    public static Base94 forAlphabet(char[] useAlphabet) {
+        return ENGINES.get(new String(useAlphabet), key -> new Base94(useAlphabet));
+    }
+
+    /**
+     * Same as above for the given strategy. All strategies for an alphabet share its reverse table.
+     */
+    public static Base94 forAlphabet(char[] useAlphabet, Strategy useStrategy) {
+        Base94 base = forAlphabet(useAlphabet);
+        if ( useStrategy == Strategy.ARITHMETIC ) {
+            return base;
+        }
+        return ENGINES.get(useStrategy.name() + new String(base.alphabet), key -> base.withStrategy(useStrategy));
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * True if the alphabet is in code point order, see BaseEncoding.orderedAlphabet. Then
+     * encodeString(a).compareTo(encodeString(b)) has the sign of the unsigned comparison of
+     * a and b whenever they have the same length.
+     */
+    public boolean isOrderPreserving() {
+        for ( int i = 1; i < alphabet.length; i++ ) {
+            if ( alphabet[i - 1] > alphabet[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return an instance with the same alphabet using the given strategy
+     */
+    public Base94 withStrategy(Strategy useStrategy) {
+        return useStrategy == strategy ? this : new Base94(alphabet, reverse, useStrategy, pooled);
+    }
+
+    /**
+     * @return an instance with the same alphabet and strategy that takes the temporary buffers
+     * of encodeString, encodeTo, decodeFrom, decodeRange and the framed methods from a shared
+     * bounded pool instead of allocating them, see ScratchBuffers. Returned arrays and Strings
+     * are never pooled.
+     */
+    public Base94 withPooledBuffers(boolean usePooled) {
+        return usePooled == pooled ? this : new Base94(alphabet, reverse, strategy, usePooled);
+    }
+
+    public boolean hasPooledBuffers() {
+        return pooled;
+    }
+
+    private byte[] scratchBytes(int length) {
+        return pooled ? ScratchBuffers.bytes(length) : new byte[length];
+    }
+
+    private void releaseScratch(byte[] buffer) {
+        if ( pooled ) {
+            ScratchBuffers.release(buffer);
+        }
+    }
+
+    private char[] scratchChars(int length) {
+        return pooled ? ScratchBuffers.chars(length) : new char[length];
+    }
+
+    private void releaseScratch(char[] buffer) {
+        if ( pooled ) {
+            ScratchBuffers.release(buffer);
+        }
     }
 
 
@@ -58,7 +270,7 @@ public class Base94 implements BaseEncoding{
      *
      *
      */
-    private byte[] encodePrivate0(byte[] input) {
+    byte[] encodePrivate0(byte[] input) {
         if ( input == null || input.length == 0 ) {
             return new byte[0];
         }
@@ -279,165 +491,658 @@ public class Base94 implements BaseEncoding{
         return output;
     }
 
+    /**
+     * Built from the ASCII bytes as ISO_8859_1, which JDK 9+ keeps as a compact one byte per
+     * character String without inflating to UTF-16.
+     */
     @Override
     public String encodeString(byte[] input) {
-        return bytesToString(encode(input));
+        if ( input == null || input.length == 0 ) {
+            return "";
+        }
+        int length = encodedLength(input.length);
+        byte[] output = scratchBytes(length);
+        try {
+            encodeFused(input, 0, input.length, output, 0);
+            return new String(output, 0, length, StandardCharsets.ISO_8859_1);
+        } finally {
+            releaseScratch(output);
+        }
     }
 
-    private String bytesToString(byte[] encode) {
-        StringBuilder builder = new StringBuilder();
-        int evenLength = encode.length / 2;
-
-        for ( int i = 0; i + 1 < encode.length; i +=2 ) {
-            int val = encode[i] << 8 | (encode[i+1] & 0xFF) ;
-            int first = val  % 94;
-            int second = val / 94;
-            builder.append(alphabet[second]);
-            builder.append(alphabet[first]);
+    @Override
+    public byte[] encodeToAsciiBytes(byte[] input) {
+        if ( input == null || input.length == 0 ) {
+            return new byte[0];
         }
-        if ( encode.length  %2 ==1 ) {
-            //encode the last byte
-            builder.append(alphabet[encode[encode.length-1]]);
+        byte[] output = new byte[encodedLength(input.length)];
+        encodeFused(input, 0, input.length, output, 0);
+        return output;
+    }
+
+    /**
+     * Every 13 bits become 2 characters, the remaining 0 - 12 bits become 1 or 2 characters.
+     */
+    @Override
+    public int encodedLength(int inputBytes) {
+        long length = encodedChars(inputBytes);
+        if ( length > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException("Input too large to encode " + inputBytes);
         }
+        return (int) length;
+    }
 
-        return builder.toString();
+    /**
+     * encodedLength without the int limit.
+     */
+    private static long encodedChars(long inputBytes) {
+        if ( inputBytes == 0 ) {
+            return 0;
+        }
+        long bits = inputBytes * 8;
+        return (bits / 13) * 2 + (bits % 13 <= 6 ? 1 : 2);
     }
 
+    @Override
+    public int encodeInto(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, encodedLength(length));
+        return encodeFused(src, offset, length, dst, dstOffset) - dstOffset;
+    }
 
     @Override
-    public byte[] decode(byte[] input) {
-        return decode1(input);
+    public int encodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, encodedLength(length));
+        return encodeFused(src, offset, length, dst, dstOffset) - dstOffset;
     }
 
-    public byte[] decode0(byte[] input) {
-        if ( input == null || input.length == 0 ) {
-            return new byte[0];
+    /**
+     * Encodes the remaining bytes of src into dst as ASCII bytes. Works on heap and direct
+     * buffers, src is fully consumed and the position of dst is moved past the output.
+     * @return number of bytes written to dst
+     */
+    @Override
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int needed = encodedLength(length);
+        if ( dst.remaining() < needed ) {
+            throw new IllegalArgumentException("Output buffer too small, needs " + needed + " but has " + dst.remaining());
         }
-        int extraDigits = input.length % 2 == 0 ? 2 : 1;
-        int evenLength = input.length - extraDigits ;
-        int numbits = (evenLength/2) * 13;
-
-        int outputLength = (numbits / 8 + (numbits%8 == 0 ? 0 : 1));
-        if ( extraDigits == 2 && ( numbits % 8 >= 4 || numbits %8 == 0) ) {
-            outputLength++;
+        int inPos = src.position();
+        int outPos = dst.position();
+        if ( src.hasArray() && dst.hasArray() ) {
+            int arrayOut = dst.arrayOffset() + outPos;
+            encodeFused(src.array(), src.arrayOffset() + inPos, length, dst.array(), arrayOut);
+        } else {
+            encodeFused(src, inPos, length, dst, outPos);
         }
-        byte[] output = new byte[outputLength];
-        int writePos = 7;
-        int writeByte = 0;
-        for (int i =0; i < evenLength; i+= 2) {
-            //Write the first byte
-            if ( writePos >= 4) {
-                output[writeByte] |= (input[i] << (writePos - 4));
-                writePos = writePos - 5;
-                if ( writePos < 0) {
-                    writeByte++;
-                    writePos = 7;
-                }
-            } else {
-                output[writeByte] |= ((input[i] & 0xFF) >>> (4-writePos));
-                output[writeByte+1] |= (input[i]  << (4+writePos));
-                writeByte++;
-                writePos = 3+writePos;
-            }
-
-            //2nd byte
-            output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
-            if ( writeByte + 1 < outputLength ) {
-                //This condition is only needed in the special case where the bytes
-                // are exactly divisible by 8. In this case we would not write the last byte.
-                // TODO for efficency code this as a different function.
-                output[writeByte + 1] |= (input[i + 1] << (writePos + 1));
-            }
+        src.position(inPos + length);
+        dst.position(outPos + needed);
+        return needed;
+    }
 
-            writeByte++;
-        }
+    /**
+     * Fused encoder. Each 13 bit group is pulled straight out of the input and its two
+     * alphabet characters are written to output, so there is no intermediate array of halves.
+     * Gives exactly the same characters as bytesToString(encodePrivate1(input)).
+     *
+     * @return position in output after the last character written
+     */
+    private int encodeFused(byte[] input, int offset, int length, char[] output, int outPos) {
+        return encodeTail(input, offset, length, output, encodeGroups(input, offset, length, output, outPos));
+    }
 
+    private int encodeFused(byte[] input, int offset, int length, byte[] output, int outPos) {
+        return encodeTail(input, offset, length, output, encodeGroups(input, offset, length, output, outPos));
+    }
 
-        if ( writeByte == outputLength - 1) {
-            output[writeByte] |= (input[input.length-1] & ( 0xFF >>> (7-writePos)));
-        } else if(writeByte == outputLength - 2) {
-            output[writeByte] |= (input[input.length-2] & ( 0xFF >>> (7-writePos)));
-            output[writeByte+1] = input[input.length -1];
-        }
+    private int encodeFused(ByteBuffer input, int offset, int length, ByteBuffer output, int outPos) {
+        return encodeTail(input, offset, length, output, encodeGroups(input, offset, length, output, outPos));
+    }
 
-        return output;
+    /**
+     * Encodes whole 13 byte blocks only, without a tail, for callers that cut a large input on
+     * block boundaries and encode the pieces independently. See Base94Files.
+     */
+    void encodeBlocks(ByteBuffer input, int offset, int blocks, ByteBuffer output, int outPos) {
+        encodeGroups(input, offset, blocks * 13, output, outPos);
     }
 
+    /**
+     * Inverse of encodeBlocks, decodes blocks * 16 characters into blocks * 13 bytes.
+     */
+    void decodeBlocks(ByteBuffer input, int offset, int blocks, ByteBuffer output, int outPos) {
+        decodeGroups(input, offset, blocks * 8, output, outPos);
+    }
 
-    public byte[] decode1(byte[] input) {
-        if ( input == null || input.length == 0 ) {
-            return new byte[0];
+    /**
+     * Encodes the (length * 8) / 13 full groups of input[offset, offset + length).
+     * Whole 13 byte blocks go through encodeBlock, the rest through the scalar bit accumulator.
+     * The 0 - 12 bits left over are written by encodeTail.
+     */
+    private int encodeGroups(byte[] input, int offset, int length, char[] output, int outPos) {
+        int i = offset;
+        for ( int blockEnd = offset + (length / 13) * 13; i < blockEnd; i += 13 ) {
+            outPos = encodeBlock(readLong(input, i), read40(input, i + 8), output, outPos);
         }
-        int extraDigits = input.length % 2 == 0 ? 2 : 1;
-        int evenLength = input.length - extraDigits ;
-        int numbits = (evenLength/2) * 13;
+        int end = offset + length;
+        int acc = 0;
+        int bits = 0;
+        for ( ; i < end; i++ ) {
+            acc = (acc << 8) | (input[i] & 0xFF);
+            bits += 8;
+            if ( bits >= 13 ) {
+                bits -= 13;
+                outPos = putPair((acc >>> bits) & 0x1FFF, output, outPos);
+            }
+        }
+        return outPos;
+    }
 
-        if ( numbits % 8 == 0 && extraDigits == 1) {
-            return decode1MultipleOf8(input, numbits, evenLength);
-        } else {
-            return decode1NotMultipleOf8(input, numbits, extraDigits, evenLength);
+    /**
+     * Same as above, writing each character as one ASCII byte.
+     */
+    private int encodeGroups(byte[] input, int offset, int length, byte[] output, int outPos) {
+        int i = offset;
+        if ( vector != null ) {
+            int done = vector.encodeBlocks(input, offset, length / 13, output, outPos);
+            i += done * 13;
+            outPos += done * 16;
         }
+        for ( int blockEnd = offset + (length / 13) * 13; i < blockEnd; i += 13 ) {
+            outPos = encodeBlock(readLong(input, i), read40(input, i + 8), output, outPos);
+        }
+        int end = offset + length;
+        int acc = 0;
+        int bits = 0;
+        for ( ; i < end; i++ ) {
+            acc = (acc << 8) | (input[i] & 0xFF);
+            bits += 8;
+            if ( bits >= 13 ) {
+                bits -= 13;
+                outPos = putPair((acc >>> bits) & 0x1FFF, output, outPos);
+            }
+        }
+        return outPos;
+    }
 
+    /**
+     * Same as above, using absolute get and put so direct buffers are never copied to the heap.
+     */
+    private int encodeGroups(ByteBuffer input, int offset, int length, ByteBuffer output, int outPos) {
+        boolean swap = input.order() != ByteOrder.BIG_ENDIAN;
+        int i = offset;
+        for ( int blockEnd = offset + (length / 13) * 13; i < blockEnd; i += 13 ) {
+            long hi = input.getLong(i);
+            long lo = ((long) (input.get(i + 8) & 0xFF) << 32) | (input.getInt(i + 9) & 0xFFFFFFFFL);
+            if ( swap ) {
+                hi = Long.reverseBytes(hi);
+                lo = (lo & 0xFF00000000L) | (Integer.reverseBytes((int) lo) & 0xFFFFFFFFL);
+            }
+            outPos = encodeBlock(hi, lo, output, outPos);
+        }
+        int end = offset + length;
+        int acc = 0;
+        int bits = 0;
+        for ( ; i < end; i++ ) {
+            acc = (acc << 8) | (input.get(i) & 0xFF);
+            bits += 8;
+            if ( bits >= 13 ) {
+                bits -= 13;
+                outPos = putPair((acc >>> bits) & 0x1FFF, output, outPos);
+            }
+        }
+        return outPos;
     }
 
-    public byte[] decode1NotMultipleOf8(byte[] input, int numbits, int extraDigits, int evenLength) {
+    /**
+     * Big endian load of input[i, i + 8).
+     */
+    private static long readLong(byte[] input, int i) {
+        return ((long) (input[i] & 0xFF) << 56)
+                | ((long) (input[i + 1] & 0xFF) << 48)
+                | ((long) (input[i + 2] & 0xFF) << 40)
+                | ((long) (input[i + 3] & 0xFF) << 32)
+                | ((long) (input[i + 4] & 0xFF) << 24)
+                | ((input[i + 5] & 0xFF) << 16)
+                | ((input[i + 6] & 0xFF) << 8)
+                | (input[i + 7] & 0xFF);
+    }
 
-        // case 1 : numbits%8 == 0 && extradigits = 2
-            // x + 0  + 1 = x+1
-        // case 2 : numbits%8 != 0 && extradigits = 2
-            // x + 1 + numbits %8 >= 4
-        // case 3 : numbits%8 != 0 && extradigits = 1
-        // x + 1
+    /**
+     * Big endian load of the 40 bits in input[i, i + 5).
+     */
+    private static long read40(byte[] input, int i) {
+        return ((long) (input[i] & 0xFF) << 32)
+                | ((long) (input[i + 1] & 0xFF) << 24)
+                | ((input[i + 2] & 0xFF) << 16)
+                | ((input[i + 3] & 0xFF) << 8)
+                | (input[i + 4] & 0xFF);
+    }
 
-        int outputLength = (numbits / 8 + 1);
-        if ( extraDigits == 2 && numbits % 8 >= 4 ) {
-            outputLength++;
-        }
-        byte[] output = new byte[outputLength];
-        int writePos = 7;
-        int writeByte = 0;
-        for (int i =0; i < evenLength; i+= 2) {
-            //Write the first byte
-            if ( writePos >= 4) {
-                output[writeByte] |= (input[i] << (writePos - 4));
-                writePos = writePos - 5;
-                if ( writePos < 0) {
-                    writeByte++;
-                    writePos = 7;
-                }
-            } else {
-                output[writeByte] |= ((input[i] & 0xFF) >>> (4-writePos));
-                output[writeByte+1] |= (input[i]  << (4+writePos));
-                writeByte++;
-                writePos = 3+writePos;
-            }
+    /**
+     * Word at a time kernel for one 13 byte block. The 104 bits are held in hi (bytes 0 - 7)
+     * and the low 40 bits of lo (bytes 8 - 12), and the 8 groups come out with fixed shifts.
+     * Group 4 straddles the two words: 12 bits from hi and the top bit of lo.
+     */
+    private int encodeBlock(long hi, long lo, char[] output, int outPos) {
+        outPos = putPair((int) (hi >>> 51), output, outPos);
+        outPos = putPair((int) (hi >>> 38) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 25) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 12) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (((hi & 0xFFF) << 1) | (lo >>> 39)), output, outPos);
+        outPos = putPair((int) (lo >>> 26) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (lo >>> 13) & 0x1FFF, output, outPos);
+        return putPair((int) lo & 0x1FFF, output, outPos);
+    }
 
-            //2nd byte
-            output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
-            output[writeByte + 1] |= (input[i + 1] << (writePos + 1));
+    private int encodeBlock(long hi, long lo, byte[] output, int outPos) {
+        outPos = putPair((int) (hi >>> 51), output, outPos);
+        outPos = putPair((int) (hi >>> 38) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 25) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 12) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (((hi & 0xFFF) << 1) | (lo >>> 39)), output, outPos);
+        outPos = putPair((int) (lo >>> 26) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (lo >>> 13) & 0x1FFF, output, outPos);
+        return putPair((int) lo & 0x1FFF, output, outPos);
+    }
 
+    private int encodeBlock(long hi, long lo, ByteBuffer output, int outPos) {
+        outPos = putPair((int) (hi >>> 51), output, outPos);
+        outPos = putPair((int) (hi >>> 38) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 25) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 12) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (((hi & 0xFFF) << 1) | (lo >>> 39)), output, outPos);
+        outPos = putPair((int) (lo >>> 26) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (lo >>> 13) & 0x1FFF, output, outPos);
+        return putPair((int) lo & 0x1FFF, output, outPos);
+    }
 
-            writeByte++;
+    private int putPair(int val, char[] output, int outPos) {
+        if ( encodePairs != null ) {
+            output[outPos] = encodePairs[2 * val];
+            output[outPos + 1] = encodePairs[2 * val + 1];
+        } else {
+            int high = div94(val);
+            output[outPos] = alphabet[high];
+            output[outPos + 1] = alphabet[val - high * 94];
         }
+        return outPos + 2;
+    }
 
-
-        if ( writeByte == outputLength - 1) {
-            output[writeByte] |= (input[input.length-1] & ( 0xFF >>> (7-writePos)));
-        } else if(writeByte == outputLength - 2) {
-            output[writeByte] |= (input[input.length-2] & ( 0xFF >>> (7-writePos)));
-            output[writeByte+1] = input[input.length -1];
+    private int putPair(int val, byte[] output, int outPos) {
+        if ( encodePairs != null ) {
+            output[outPos] = (byte) encodePairs[2 * val];
+            output[outPos + 1] = (byte) encodePairs[2 * val + 1];
+        } else {
+            int high = div94(val);
+            output[outPos] = (byte) alphabet[high];
+            output[outPos + 1] = (byte) alphabet[val - high * 94];
         }
+        return outPos + 2;
+    }
 
+    private int putPair(int val, ByteBuffer output, int outPos) {
+        if ( encodePairs != null ) {
+            output.put(outPos, (byte) encodePairs[2 * val]);
+            output.put(outPos + 1, (byte) encodePairs[2 * val + 1]);
+        } else {
+            int high = div94(val);
+            output.put(outPos, (byte) alphabet[high]);
+            output.put(outPos + 1, (byte) alphabet[val - high * 94]);
+        }
+        return outPos + 2;
+    }
+
+    /**
+     * val / 94 for 0 <= val < 8192 as a multiply and shift, exact over that range.
+     * Lets the arithmetic strategy produce both digits without a division or the sign fix up
+     * the JIT adds for a signed division by a constant.
+     */
+    static int div94(int val) {
+        return (val * 2789) >>> 18;
+    }
+
+    /**
+     * bits is (length * 8) % 13, and the low 16 bits of acc are the last two input bytes.
+     * Same special cases as the end of encodePrivate1, 0 - 6 remaining bits are written as one
+     * character and 7 - 12 bits as a pair.
+     */
+    private static int tailValue(int acc, int bits) {
+        if ( bits == 0 ) {
+            return 0;
+        } else if ( bits <= 6 ) {
+            return acc & 0x3F;
+        }
+        return (bits <= 8) ? acc & 0xFF : acc & 0x0FFF;
+    }
+
+    private static int tailBits(int length) {
+        return (int) ((length * 8L) % 13);
+    }
+
+    private static int lastTwo(byte[] input, int offset, int length) {
+        int end = offset + length;
+        return (length > 1 ? (input[end - 2] & 0xFF) << 8 : 0) | (input[end - 1] & 0xFF);
+    }
+
+    private int encodeTail(byte[] input, int offset, int length, char[] output, int outPos) {
+        return length == 0 ? outPos : encodeTail(lastTwo(input, offset, length), tailBits(length), output, outPos);
+    }
+
+    private int encodeTail(byte[] input, int offset, int length, byte[] output, int outPos) {
+        return length == 0 ? outPos : encodeTail(lastTwo(input, offset, length), tailBits(length), output, outPos);
+    }
+
+    /**
+     * Tail from the running state of a streaming encoder, see tailValue.
+     */
+    private int encodeTail(int acc, int bits, char[] output, int outPos) {
+        if ( bits <= 6 ) {
+            output[outPos] = alphabet[tailValue(acc, bits)];
+            return outPos + 1;
+        }
+        return putPair(tailValue(acc, bits), output, outPos);
+    }
+
+    private int encodeTail(int acc, int bits, byte[] output, int outPos) {
+        if ( bits <= 6 ) {
+            output[outPos] = (byte) alphabet[tailValue(acc, bits)];
+            return outPos + 1;
+        }
+        return putPair(tailValue(acc, bits), output, outPos);
+    }
+
+    private int encodeTail(ByteBuffer input, int offset, int length, ByteBuffer output, int outPos) {
+        if ( length == 0 ) {
+            return outPos;
+        }
+        int end = offset + length;
+        int acc = (length > 1 ? (input.get(end - 2) & 0xFF) << 8 : 0) | (input.get(end - 1) & 0xFF);
+        int bits = tailBits(length);
+        if ( bits <= 6 ) {
+            output.put(outPos, (byte) alphabet[tailValue(acc, bits)]);
+            return outPos + 1;
+        }
+        return putPair(tailValue(acc, bits), output, outPos);
+    }
+
+    /**
+     * Wraps an output stream for encoding, in the spirit of java.util.Base64.Encoder.wrap.
+     * Bytes written are encoded with constant memory and written as ASCII characters to out.
+     * Closing the returned stream writes the tail and closes out.
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new Base94OutputStream(out, this);
+    }
+
+    /**
+     * Wraps an input stream of ASCII encoded characters for decoding, in the spirit of
+     * java.util.Base64.Decoder.wrap. Invalid characters are reported as an IOException.
+     */
+    public InputStream wrap(InputStream in) {
+        return new Base94InputStream(in, this);
+    }
+
+    //Characters per chunk of encodeTo and decodeFrom, 512 blocks
+    private static final int TEXT_CHUNK_CHARS = 512 * 16;
+
+    /**
+     * Appends the encoding of src to out a chunk at a time, without building a String first.
+     * A StringBuilder gets its capacity raised once, a Writer gets bulk char[] writes, any other
+     * Appendable a String per chunk.
+     */
+    public void encodeTo(byte[] src, Appendable out) throws IOException {
+        if ( src.length == 0 ) {
+            return;
+        }
+        if ( out instanceof StringBuilder ) {
+            StringBuilder builder = (StringBuilder) out;
+            builder.ensureCapacity(builder.length() + encodedLength(src.length));
+        }
+        int chunkBytes = (TEXT_CHUNK_CHARS / 16) * 13;
+        char[] chars = scratchChars(encodedLength(chunkBytes));
+        try {
+            int offset = 0;
+            for ( ; src.length - offset > chunkBytes; offset += chunkBytes ) {
+                appendChars(chars, encodeGroups(src, offset, chunkBytes, chars, 0), out);
+            }
+            appendChars(chars, encodeFused(src, offset, src.length - offset, chars, 0), out);
+        } finally {
+            releaseScratch(chars);
+        }
+    }
+
+    private static void appendChars(char[] chars, int count, Appendable out) throws IOException {
+        if ( out instanceof StringBuilder ) {
+            ((StringBuilder) out).append(chars, 0, count);
+        } else if ( out instanceof Writer ) {
+            ((Writer) out).write(chars, 0, count);
+        } else {
+            //Any other Appendable may keep the CharSequence, so it gets a copy and never the reused buffer
+            out.append(new String(chars, 0, count));
+        }
+    }
+
+    /**
+     * Decodes the characters read from in until end of stream and writes the bytes to out,
+     * a chunk at a time. Neither stream is closed.
+     * @return number of bytes written
+     * @throws DecodingException with the offset of the invalid character in the whole input
+     */
+    public long decodeFrom(Reader in, OutputStream out) throws IOException {
+        char[] chars = scratchChars(TEXT_CHUNK_CHARS);
+        byte[] bytes = scratchBytes((TEXT_CHUNK_CHARS / 16) * 13);
+        //Offset of chars[0] in the whole input
+        long consumed = 0;
+        long written = 0;
+        int count = 0;
+        int n;
+        try {
+            while ( (n = in.read(chars, count, TEXT_CHUNK_CHARS - count)) != -1 ) {
+                count += n;
+                //Always keep at least one character back, only the end of input tells where the tail is
+                int blocks = (count - 1) / 16;
+                if ( blocks == 0 ) {
+                    continue;
+                }
+                int length = decodeGroups(chars, 0, blocks * 8, bytes, 0);
+                out.write(bytes, 0, length);
+                written += length;
+                System.arraycopy(chars, blocks * 16, chars, 0, count - blocks * 16);
+                count -= blocks * 16;
+                consumed += blocks * 16;
+            }
+            if ( count > 0 ) {
+                int length = decodeFused(chars, 0, count, bytes, 0);
+                out.write(bytes, 0, length);
+                written += length;
+            }
+        } catch (DecodingException e) {
+            throw e.shift(consumed);
+        } finally {
+            releaseScratch(chars);
+            releaseScratch(bytes);
+        }
+        return written;
+    }
+
+    /**
+     * Default size below which encodeParallel and decodeParallel do not split the work further.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    public String encodeParallel(byte[] input) {
+        return encodeParallel(input, ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Same output as encodeString, with the work split across pool. Every 13 input bytes are
+     * exactly 16 characters, so the input is cut on 13 byte boundaries and each piece is encoded
+     * straight to its place in one shared output array.
+     *
+     * @param threshold input bytes below which a piece is not split further
+     */
+    public String encodeParallel(byte[] input, ForkJoinPool pool, int threshold) {
+        if ( input == null || input.length == 0 ) {
+            return "";
+        }
+        char[] output = new char[encodedLength(input.length)];
+        int blocks = input.length / 13;
+        pool.invoke(new EncodeTask(this, input, output, 0, blocks, Math.max(1, threshold / 13)));
+        int outPos = encodeGroups(input, blocks * 13, input.length - blocks * 13, output, blocks * 16);
+        encodeTail(input, 0, input.length, output, outPos);
+        return new String(output);
+    }
+
+    public byte[] decodeParallel(CharSequence input) {
+        return decodeParallel(input, ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Same output as decodeString, with the work split across pool on 16 character boundaries.
+     *
+     * @param threshold input characters below which a piece is not split further
+     */
+    public byte[] decodeParallel(CharSequence input, ForkJoinPool pool, int threshold) {
+        if ( input == null || input.length() == 0 ) {
+            return new byte[0];
+        }
+        byte[] output = new byte[maxDecodedLength(input.length())];
+        int groups = (input.length() - 1) / 2;
+        int blocks = groups / 8;
+        pool.invoke(new DecodeTask(this, input, output, 0, blocks, Math.max(1, threshold / 16)));
+        int outPos = decodeGroups(input, blocks * 16, groups - blocks * 8, output, blocks * 13);
+        decodeTail(input, 0, input.length(), output, outPos);
         return output;
     }
-    public byte[] decode1MultipleOf8(byte[] input, int numbits, int evenLength) {
-        int outputLength = (numbits / 8 );
 
+    /**
+     * Encodes the 13 byte blocks [from, to) of input.
+     */
+    private static final class EncodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        //A task is only ever run in place, the encoding and the arrays are not part of its serial form
+        private final transient Base94 base94;
+        private final transient byte[] input;
+        private final transient char[] output;
+        private final int from;
+        private final int to;
+        private final int minBlocks;
+
+        EncodeTask(Base94 base94, byte[] input, char[] output, int from, int to, int minBlocks) {
+            this.base94 = base94;
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+            this.minBlocks = minBlocks;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from <= minBlocks ) {
+                base94.encodeGroups(input, from * 13, (to - from) * 13, output, from * 16);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EncodeTask(base94, input, output, from, mid, minBlocks),
+                          new EncodeTask(base94, input, output, mid, to, minBlocks));
+            }
+        }
+    }
+
+    /**
+     * Decodes the 16 character blocks [from, to) of input.
+     */
+    private static final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        //A task is only ever run in place, the encoding and the arrays are not part of its serial form
+        private final transient Base94 base94;
+        private final transient CharSequence input;
+        private final transient byte[] output;
+        private final int from;
+        private final int to;
+        private final int minBlocks;
+
+        DecodeTask(Base94 base94, CharSequence input, byte[] output, int from, int to, int minBlocks) {
+            this.base94 = base94;
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+            this.minBlocks = minBlocks;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from <= minBlocks ) {
+                base94.decodeGroups(input, from * 16, (to - from) * 8, output, from * 13);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DecodeTask(base94, input, output, from, mid, minBlocks),
+                          new DecodeTask(base94, input, output, mid, to, minBlocks));
+            }
+        }
+    }
+
+    /**
+     * @return a new incremental encoder using this alphabet
+     */
+    public Encoder newEncoder() {
+        return new Encoder(this);
+    }
+
+    /**
+     * @return a new incremental decoder using this alphabet
+     */
+    public Decoder newDecoder() {
+        return new Decoder(this);
+    }
+
+    String bytesToString(byte[] encode) {
+        StringBuilder builder = new StringBuilder();
+        int evenLength = encode.length / 2;
+
+        for ( int i = 0; i + 1 < encode.length; i +=2 ) {
+            int val = encode[i] << 8 | (encode[i+1] & 0xFF) ;
+            int first = val  % 94;
+            int second = val / 94;
+            builder.append(alphabet[second]);
+            builder.append(alphabet[first]);
+        }
+        if ( encode.length  %2 ==1 ) {
+            //encode the last byte
+            builder.append(alphabet[encode[encode.length-1]]);
+        }
+
+        return builder.toString();
+    }
+
+
+    @Override
+    public byte[] decode(byte[] input) {
+        return decode1(input);
+    }
+
+    public byte[] decode0(byte[] input) {
+        if ( input == null || input.length == 0 ) {
+            return new byte[0];
+        }
+        int extraDigits = input.length % 2 == 0 ? 2 : 1;
+        int evenLength = input.length - extraDigits ;
+        int numbits = (evenLength/2) * 13;
+
+        int outputLength = (numbits / 8 + (numbits%8 == 0 ? 0 : 1));
+        if ( extraDigits == 2 && ( numbits % 8 >= 4 || numbits %8 == 0) ) {
+            outputLength++;
+        }
         byte[] output = new byte[outputLength];
         int writePos = 7;
         int writeByte = 0;
-        int i = 0;
-        for ( ; i < evenLength-2; i+= 2) {
+        for (int i =0; i < evenLength; i+= 2) {
             //Write the first byte
             if ( writePos >= 4) {
                 output[writeByte] |= (input[i] << (writePos - 4));
@@ -455,44 +1160,1386 @@ public class Base94 implements BaseEncoding{
 
             //2nd byte
             output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
-            output[writeByte + 1] |= (input[i + 1] << (writePos + 1));
-            writeByte++;
-        }
-        if ( writePos >= 4) {
-            output[writeByte] |= (input[i] << (writePos - 4));
-            writePos = writePos - 5;
-            if ( writePos < 0) {
-                writeByte++;
-                writePos = 7;
+            if ( writeByte + 1 < outputLength ) {
+                //This condition is only needed in the special case where the bytes
+                // are exactly divisible by 8. In this case we would not write the last byte.
+                // TODO for efficency code this as a different function.
+                output[writeByte + 1] |= (input[i + 1] << (writePos + 1));
             }
-        } else {
-            output[writeByte] |= ((input[i] & 0xFF) >>> (4-writePos));
-            output[writeByte+1] |= (input[i]  << (4+writePos));
+
             writeByte++;
-            writePos = 3+writePos;
         }
 
-        //2nd byte
-        output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
+
+        if ( writeByte == outputLength - 1) {
+            output[writeByte] |= (input[input.length-1] & ( 0xFF >>> (7-writePos)));
+        } else if(writeByte == outputLength - 2) {
+            output[writeByte] |= (input[input.length-2] & ( 0xFF >>> (7-writePos)));
+            output[writeByte+1] = input[input.length -1];
+        }
+
         return output;
     }
 
-    @Override
-    public byte[] decodeString(String input) {
-        char[] array = input.toCharArray();
 
-        byte[] output = new byte[array.length];
-        for ( int i = 0; i + 1 < array.length; i+= 2 ) {
-            if ( array[i] < 33 || array[i] > 126 || array[i+1] < 33 || array[i+1] > 126 ) {
-                throw new IllegalArgumentException("Illegal character");
+    public byte[] decode1(byte[] input) {
+        if ( input == null || input.length == 0 ) {
+            return new byte[0];
+        }
+        int extraDigits = input.length % 2 == 0 ? 2 : 1;
+        int evenLength = input.length - extraDigits ;
+        int numbits = (evenLength/2) * 13;
+
+        if ( numbits % 8 == 0 && extraDigits == 1) {
+            return decode1MultipleOf8(input, numbits, evenLength);
+        } else {
+            return decode1NotMultipleOf8(input, numbits, extraDigits, evenLength);
+        }
+
+    }
+
+    public byte[] decode1NotMultipleOf8(byte[] input, int numbits, int extraDigits, int evenLength) {
+
+        // case 1 : numbits%8 == 0 && extradigits = 2
+            // x + 0  + 1 = x+1
+        // case 2 : numbits%8 != 0 && extradigits = 2
+            // x + 1 + numbits %8 >= 4
+        // case 3 : numbits%8 != 0 && extradigits = 1
+        // x + 1
+
+        int outputLength = (numbits / 8 + 1);
+        if ( extraDigits == 2 && numbits % 8 >= 4 ) {
+            outputLength++;
+        }
+        byte[] output = new byte[outputLength];
+        int writePos = 7;
+        int writeByte = 0;
+        for (int i =0; i < evenLength; i+= 2) {
+            //Write the first byte
+            if ( writePos >= 4) {
+                output[writeByte] |= (input[i] << (writePos - 4));
+                writePos = writePos - 5;
+                if ( writePos < 0) {
+                    writeByte++;
+                    writePos = 7;
+                }
+            } else {
+                output[writeByte] |= ((input[i] & 0xFF) >>> (4-writePos));
+                output[writeByte+1] |= (input[i]  << (4+writePos));
+                writeByte++;
+                writePos = 3+writePos;
             }
-            int val = reverse[array[i]] * 94 + reverse[array[i+1]];
-            output[i+1] = (byte) (val & 0xFF);
-            output[i] = (byte) (val >>> 8);
+
+            //2nd byte
+            output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
+            output[writeByte + 1] |= (input[i + 1] << (writePos + 1));
+
+
+            writeByte++;
+        }
+
+
+        if ( writeByte == outputLength - 1) {
+            output[writeByte] |= (input[input.length-1] & ( 0xFF >>> (7-writePos)));
+        } else if(writeByte == outputLength - 2) {
+            output[writeByte] |= (input[input.length-2] & ( 0xFF >>> (7-writePos)));
+            output[writeByte+1] = input[input.length -1];
         }
-        if ( array.length %2 == 1 ) {
-            output[array.length-1] = reverse[array[array.length-1]];
+
+        return output;
+    }
+    public byte[] decode1MultipleOf8(byte[] input, int numbits, int evenLength) {
+        int outputLength = (numbits / 8 );
+
+        byte[] output = new byte[outputLength];
+        int writePos = 7;
+        int writeByte = 0;
+        int i = 0;
+        for ( ; i < evenLength-2; i+= 2) {
+            //Write the first byte
+            if ( writePos >= 4) {
+                output[writeByte] |= (input[i] << (writePos - 4));
+                writePos = writePos - 5;
+                if ( writePos < 0) {
+                    writeByte++;
+                    writePos = 7;
+                }
+            } else {
+                output[writeByte] |= ((input[i] & 0xFF) >>> (4-writePos));
+                output[writeByte+1] |= (input[i]  << (4+writePos));
+                writeByte++;
+                writePos = 3+writePos;
+            }
+
+            //2nd byte
+            output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
+            output[writeByte + 1] |= (input[i + 1] << (writePos + 1));
+            writeByte++;
+        }
+        if ( writePos >= 4) {
+            output[writeByte] |= (input[i] << (writePos - 4));
+            writePos = writePos - 5;
+            if ( writePos < 0) {
+                writeByte++;
+                writePos = 7;
+            }
+        } else {
+            output[writeByte] |= ((input[i] & 0xFF) >>> (4-writePos));
+            output[writeByte+1] |= (input[i]  << (4+writePos));
+            writeByte++;
+            writePos = 3+writePos;
+        }
+
+        //2nd byte
+        output[writeByte] |= ((input[i+1] & 0xFF) >>> (7-writePos));
+        return output;
+    }
+
+    @Override
+    public byte[] decodeString(String input) {
+        if ( input == null || input.length() == 0 ) {
+            return new byte[0];
+        }
+        byte[] output = new byte[maxDecodedLength(input.length())];
+        decodeFused(input, 0, input.length(), output, 0);
+        return output;
+    }
+
+    @Override
+    public byte[] decodeAscii(byte[] asciiChars) {
+        if ( asciiChars == null || asciiChars.length == 0 ) {
+            return new byte[0];
+        }
+        byte[] output = new byte[maxDecodedLength(asciiChars.length)];
+        decodeFused(asciiChars, 0, asciiChars.length, output, 0);
+        return output;
+    }
+
+    /**
+     * Decodes only bytes [fromByte, fromByte + length) of what decodeString(encoded) would give.
+     * Every 13 bytes are exactly 16 characters, so only the covering blocks are decoded, plus
+     * the tail when the range reaches into the last 1 - 13 bytes.
+     */
+    public byte[] decodeRange(CharSequence encoded, long fromByte, int length) {
+        int chars = encoded.length();
+        long total = (chars == 0) ? 0 : maxDecodedLength(chars);
+        if ( fromByte < 0 || length < 0 || fromByte > total - length ) {
+            throw new IndexOutOfBoundsException("Range [" + fromByte + ", " + fromByte + " + " + length + ") out of bounds for length " + total);
+        }
+        byte[] output = new byte[length];
+        if ( length == 0 ) {
+            return output;
+        }
+        //The last 1 - 16 characters hold the tail, everything before is whole blocks
+        int fullBlocks = (chars - 1) / 16;
+        int firstBlock = (int) (fromByte / 13);
+        int endBlock = (int) ((fromByte + length - 1) / 13) + 1;
+        byte[] blocks = scratchBytes((endBlock - firstBlock) * 13);
+        try {
+            int outPos = 0;
+            if ( firstBlock < fullBlocks ) {
+                outPos = decodeGroups(encoded, firstBlock * 16, (Math.min(endBlock, fullBlocks) - firstBlock) * 8, blocks, 0);
+            }
+            if ( endBlock > fullBlocks ) {
+                decodeFused(encoded, fullBlocks * 16, chars - fullBlocks * 16, blocks, outPos);
+            }
+            System.arraycopy(blocks, (int) (fromByte - firstBlock * 13L), output, 0, length);
+        } finally {
+            releaseScratch(blocks);
+        }
+        return output;
+    }
+
+    /**
+     * Bytes added around the payload by encodeFramed: a 4 byte length before, a 4 byte CRC32C after.
+     */
+    public static final int FRAME_OVERHEAD = 8;
+
+    //Blocks encoded or decoded per step of the framed loops, small enough to stay in L1 for the checksum
+    private static final int FRAME_CHUNK_BLOCKS = 256;
+
+    /**
+     * Encodes a frame of big endian payload length, payload and big endian CRC32C of the payload
+     * as one Base94 string. The checksum is updated chunk by chunk just before each chunk is
+     * encoded, so the payload is read from memory once.
+     * Frames can be concatenated, see decodeFrames.
+     */
+    public String encodeFramed(byte[] payload) {
+        if ( payload.length > Integer.MAX_VALUE - 16 - FRAME_OVERHEAD ) {
+            throw new IllegalArgumentException("Payload too large to frame " + payload.length);
+        }
+        int length = encodedLength(payload.length + FRAME_OVERHEAD);
+        byte[] output = scratchBytes(length);
+        try {
+            byte[] word = new byte[4];
+            Encoder encoder = newEncoder();
+            putInt(payload.length, word);
+            int outPos = encoder.update(word, 0, 4, output, 0);
+            Crc32c crc = new Crc32c();
+            for ( int offset = 0; offset < payload.length; offset += FRAME_CHUNK_BLOCKS * 13 ) {
+                int n = Math.min(FRAME_CHUNK_BLOCKS * 13, payload.length - offset);
+                crc.update(payload, offset, n);
+                outPos += encoder.update(payload, offset, n, output, outPos);
+            }
+            putInt((int) crc.getValue(), word);
+            outPos += encoder.update(word, 0, 4, output, outPos);
+            encoder.finish(output, outPos);
+            return new String(output, 0, length, StandardCharsets.ISO_8859_1);
+        } finally {
+            releaseScratch(output);
+        }
+    }
+
+    /**
+     * Decodes a string holding exactly one frame written by encodeFramed.
+     * @throws DecodingException at the frame offset if the length or checksum does not match,
+     * or at the character if one is invalid
+     */
+    public byte[] decodeFramed(CharSequence encoded) {
+        List<byte[]> frames = new ArrayList<>(1);
+        int end = decodeFrame(encoded, 0, frames);
+        if ( end != encoded.length() ) {
+            throw new DecodingException("Characters after frame", end);
+        }
+        return frames.get(0);
+    }
+
+    /**
+     * Decodes a string of concatenated frames written by encodeFramed, returning their payloads.
+     * @throws DecodingException at the offset of the first frame that fails its length or checksum
+     */
+    public List<byte[]> decodeFrames(CharSequence encoded) {
+        List<byte[]> frames = new ArrayList<>();
+        for ( int offset = 0; offset < encoded.length(); ) {
+            offset = decodeFrame(encoded, offset, frames);
+        }
+        return frames;
+    }
+
+    /**
+     * Decodes the frame starting at offset, adds its payload to frames and returns where it ends.
+     * The first 3 pairs give the length, which fixes the encoded length of the frame. The rest is
+     * decoded a chunk at a time into a small buffer, the payload part of each chunk goes into the
+     * checksum while it is still in cache.
+     */
+    private int decodeFrame(CharSequence encoded, int offset, List<byte[]> frames) {
+        int available = encoded.length() - offset;
+        if ( available < encodedLength(FRAME_OVERHEAD) ) {
+            throw new DecodingException("Truncated frame", offset);
+        }
+        byte[] word = new byte[4];
+        decodeGroups(encoded, offset, 3, word, 0);
+        int length = getInt(word);
+        if ( length < 0 || length > Integer.MAX_VALUE - 16 - FRAME_OVERHEAD ) {
+            throw new DecodingException("Invalid frame length", offset);
+        }
+        //In long, a corrupted length may be past what encodedLength takes
+        if ( encodedChars((long) length + FRAME_OVERHEAD) > available ) {
+            throw new DecodingException("Truncated frame", offset);
+        }
+        int frameChars = encodedLength(length + FRAME_OVERHEAD);
+        byte[] payload = new byte[length];
+        byte[] chunk = scratchBytes(FRAME_CHUNK_BLOCKS * 13 + 16);
+        Crc32c crc = new Crc32c();
+        int frameEnd = offset + frameChars;
+        //The last 1 - 16 characters hold the tail, everything before is whole blocks
+        int tailStart = offset + ((frameChars - 1) / 16) * 16;
+        try {
+            int framePos = 0;
+            for ( int i = offset; i < tailStart; i += FRAME_CHUNK_BLOCKS * 16 ) {
+                int blocks = Math.min(FRAME_CHUNK_BLOCKS, (tailStart - i) / 16);
+                int n = decodeGroups(encoded, i, blocks * 8, chunk, 0);
+                framePos = takeFrameBytes(chunk, n, framePos, payload, word, crc);
+            }
+            int n = decodeFused(encoded, tailStart, frameEnd - tailStart, chunk, 0);
+            takeFrameBytes(chunk, n, framePos, payload, word, crc);
+        } finally {
+            releaseScratch(chunk);
+        }
+        if ( getInt(word) != (int) crc.getValue() ) {
+            throw new DecodingException("Frame checksum mismatch", offset);
+        }
+        frames.add(payload);
+        return frameEnd;
+    }
+
+    /**
+     * Routes count decoded bytes, starting at framePos within the frame, to the payload (and the
+     * checksum) or the trailer. The 4 length bytes are skipped, they were read already.
+     */
+    private static int takeFrameBytes(byte[] chunk, int count, int framePos, byte[] payload, byte[] trailer, Crc32c crc) {
+        int end = framePos + count;
+        int from = Math.max(framePos, 4);
+        int to = Math.min(end, 4 + payload.length);
+        if ( from < to ) {
+            System.arraycopy(chunk, from - framePos, payload, from - 4, to - from);
+            crc.update(chunk, from - framePos, to - from);
+        }
+        for ( int pos = Math.max(framePos, 4 + payload.length); pos < end; pos++ ) {
+            trailer[pos - 4 - payload.length] = chunk[pos - framePos];
+        }
+        return end;
+    }
+
+    private static void putInt(int value, byte[] output) {
+        output[0] = (byte) (value >>> 24);
+        output[1] = (byte) (value >>> 16);
+        output[2] = (byte) (value >>> 8);
+        output[3] = (byte) value;
+    }
+
+    private static int getInt(byte[] input) {
+        return ((input[0] & 0xFF) << 24) | ((input[1] & 0xFF) << 16) | ((input[2] & 0xFF) << 8) | (input[3] & 0xFF);
+    }
+
+    /**
+     * The last character (odd length) or the last pair (even length) carries the remaining bits,
+     * so for input produced by this encoder this is the exact decoded length.
+     */
+    @Override
+    public int maxDecodedLength(int inputChars) {
+        if ( inputChars == 0 ) {
+            return 0;
+        }
+        int groups = (inputChars - 1) / 2;
+        return (int) ((groups * 13L + tailBits((groups * 13) & 7, inputChars % 2 == 0)) / 8);
+    }
+
+    @Override
+    public int decodeInto(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length(), offset, length);
+        Checks.checkSpace(dst.length, dstOffset, maxDecodedLength(length));
+        return decodeFused(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    @Override
+    public int decodeInto(char[] src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, maxDecodedLength(length));
+        return decodeFused(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    @Override
+    public int decodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        Checks.checkRange(src.length, offset, length);
+        Checks.checkSpace(dst.length, dstOffset, maxDecodedLength(length));
+        return decodeFused(src, offset, length, dst, dstOffset) - dstOffset;
+    }
+
+    /**
+     * Decodes the remaining ASCII bytes of src into dst. Works on heap and direct buffers,
+     * src is fully consumed and the position of dst is moved past the output.
+     * @return number of bytes written to dst
+     */
+    @Override
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int needed = maxDecodedLength(length);
+        if ( dst.remaining() < needed ) {
+            throw new IllegalArgumentException("Output buffer too small, needs " + needed + " but has " + dst.remaining());
+        }
+        int inPos = src.position();
+        int outPos = dst.position();
+        int written;
+        if ( src.hasArray() && dst.hasArray() ) {
+            int arrayOut = dst.arrayOffset() + outPos;
+            written = decodeFused(src.array(), src.arrayOffset() + inPos, length, dst.array(), arrayOut) - arrayOut;
+        } else {
+            written = decodeFused(src, inPos, length, dst, outPos) - outPos;
+        }
+        src.position(inPos + length);
+        dst.position(outPos + written);
+        return written;
+    }
+
+    /**
+     * Number of bits held by the tail, when the full 13 bit groups before it leave usedBits
+     * (0 - 7) bits of a partial byte. Mirrors the outputLength cases in decode1 and
+     * decode1NotMultipleOf8.
+     */
+    private static int tailBits(int usedBits, boolean pairTail) {
+        if ( !pairTail ) {
+            return (8 - usedBits) & 7;
+        }
+        return usedBits == 0 ? 8 : (usedBits < 4 ? 8 - usedBits : 16 - usedBits);
+    }
+
+    /**
+     * Fused decoder. Each character pair is turned into its 13 bit value through reverse and
+     * shifted straight into an accumulator, whole bytes are flushed to output as soon as they
+     * are complete. No copy of the input and no intermediate array of halves.
+     *
+     * @return position in output after the last byte written
+     */
+    private int decodeFused(CharSequence input, int offset, int length, byte[] output, int outPos) {
+        if ( length == 0 ) {
+            return outPos;
+        }
+        return decodeTail(input, offset, length, output, decodeGroups(input, offset, (length - 1) / 2, output, outPos));
+    }
+
+    private int decodeFused(char[] input, int offset, int length, byte[] output, int outPos) {
+        if ( length == 0 ) {
+            return outPos;
+        }
+        return decodeTail(input, offset, length, output, decodeGroups(input, offset, (length - 1) / 2, output, outPos));
+    }
+
+    private int decodeFused(byte[] input, int offset, int length, byte[] output, int outPos) {
+        if ( length == 0 ) {
+            return outPos;
+        }
+        return decodeTail(input, offset, length, output, decodeGroups(input, offset, (length - 1) / 2, output, outPos));
+    }
+
+    private int decodeFused(ByteBuffer input, int offset, int length, ByteBuffer output, int outPos) {
+        if ( length == 0 ) {
+            return outPos;
+        }
+        return decodeTail(input, offset, length, output, decodeGroups(input, offset, (length - 1) / 2, output, outPos));
+    }
+
+    /**
+     * Decodes the given number of full character pairs, writing every complete byte.
+     * Whole blocks of 8 pairs go through decodeBlock, the rest through the scalar bit accumulator.
+     * The 0 - 7 bits of the last group that do not fill a byte are picked up again by decodeTail.
+     */
+    private int decodeGroups(CharSequence input, int offset, int groups, byte[] output, int outPos) {
+        int i = offset;
+        for ( int blockEnd = offset + (groups / 8) * 16; i < blockEnd; i += 16 ) {
+            outPos = decodeBlock(pairValue(input.charAt(i), input.charAt(i + 1)),
+                                 pairValue(input.charAt(i + 2), input.charAt(i + 3)),
+                                 pairValue(input.charAt(i + 4), input.charAt(i + 5)),
+                                 pairValue(input.charAt(i + 6), input.charAt(i + 7)),
+                                 pairValue(input.charAt(i + 8), input.charAt(i + 9)),
+                                 pairValue(input.charAt(i + 10), input.charAt(i + 11)),
+                                 pairValue(input.charAt(i + 12), input.charAt(i + 13)),
+                                 pairValue(input.charAt(i + 14), input.charAt(i + 15)), output, outPos);
+            if ( outPos < 0 ) {
+                throw invalidInput(input::charAt, i, i + 16);
+            }
+        }
+        int end = offset + groups * 2;
+        long acc = 0;
+        int bits = 0;
+        for ( ; i < end; i += 2 ) {
+            int val = pairValue(input.charAt(i), input.charAt(i + 1));
+            if ( val < 0 ) {
+                throw invalidInput(input::charAt, i, i + 2);
+            }
+            acc = (acc << 13) | val;
+            outPos = flush(acc, bits += 13, output, outPos);
+            bits &= 7;
+        }
+        return outPos;
+    }
+
+    /**
+     * Same as above, reading from a char array.
+     */
+    private int decodeGroups(char[] input, int offset, int groups, byte[] output, int outPos) {
+        int i = offset;
+        for ( int blockEnd = offset + (groups / 8) * 16; i < blockEnd; i += 16 ) {
+            outPos = decodeBlock(pairValue(input[i], input[i + 1]),
+                                 pairValue(input[i + 2], input[i + 3]),
+                                 pairValue(input[i + 4], input[i + 5]),
+                                 pairValue(input[i + 6], input[i + 7]),
+                                 pairValue(input[i + 8], input[i + 9]),
+                                 pairValue(input[i + 10], input[i + 11]),
+                                 pairValue(input[i + 12], input[i + 13]),
+                                 pairValue(input[i + 14], input[i + 15]), output, outPos);
+            if ( outPos < 0 ) {
+                throw invalidInput(j -> input[j], i, i + 16);
+            }
+        }
+        int end = offset + groups * 2;
+        long acc = 0;
+        int bits = 0;
+        for ( ; i < end; i += 2 ) {
+            int val = pairValue(input[i], input[i + 1]);
+            if ( val < 0 ) {
+                throw invalidInput(j -> input[j], i, i + 2);
+            }
+            acc = (acc << 13) | val;
+            outPos = flush(acc, bits += 13, output, outPos);
+            bits &= 7;
+        }
+        return outPos;
+    }
+
+    /**
+     * Same as above, reading one ASCII byte per character.
+     */
+    private int decodeGroups(byte[] input, int offset, int groups, byte[] output, int outPos) {
+        int i = offset;
+        for ( int blockEnd = offset + (groups / 8) * 16; i < blockEnd; i += 16 ) {
+            outPos = decodeBlock(pairValue(input[i], input[i + 1]),
+                                 pairValue(input[i + 2], input[i + 3]),
+                                 pairValue(input[i + 4], input[i + 5]),
+                                 pairValue(input[i + 6], input[i + 7]),
+                                 pairValue(input[i + 8], input[i + 9]),
+                                 pairValue(input[i + 10], input[i + 11]),
+                                 pairValue(input[i + 12], input[i + 13]),
+                                 pairValue(input[i + 14], input[i + 15]), output, outPos);
+            if ( outPos < 0 ) {
+                throw invalidInput(j -> input[j] & 0xFF, i, i + 16);
+            }
+        }
+        int end = offset + groups * 2;
+        long acc = 0;
+        int bits = 0;
+        for ( ; i < end; i += 2 ) {
+            int val = pairValue(input[i], input[i + 1]);
+            if ( val < 0 ) {
+                throw invalidInput(j -> input[j] & 0xFF, i, i + 2);
+            }
+            acc = (acc << 13) | val;
+            outPos = flush(acc, bits += 13, output, outPos);
+            bits &= 7;
+        }
+        return outPos;
+    }
+
+    /**
+     * Same as above, using absolute get and put so direct buffers are never copied to the heap.
+     */
+    private int decodeGroups(ByteBuffer input, int offset, int groups, ByteBuffer output, int outPos) {
+        int i = offset;
+        for ( int blockEnd = offset + (groups / 8) * 16; i < blockEnd; i += 16 ) {
+            int v0 = pairValue(input.get(i), input.get(i + 1));
+            int v1 = pairValue(input.get(i + 2), input.get(i + 3));
+            int v2 = pairValue(input.get(i + 4), input.get(i + 5));
+            int v3 = pairValue(input.get(i + 6), input.get(i + 7));
+            int v4 = pairValue(input.get(i + 8), input.get(i + 9));
+            int v5 = pairValue(input.get(i + 10), input.get(i + 11));
+            int v6 = pairValue(input.get(i + 12), input.get(i + 13));
+            int v7 = pairValue(input.get(i + 14), input.get(i + 15));
+            if ( (v0 | v1 | v2 | v3 | v4 | v5 | v6 | v7) < 0 ) {
+                throw invalidInput(j -> input.get(j) & 0xFF, i, i + 16);
+            }
+            long hi = blockHi(v0, v1, v2, v3, v4);
+            long lo = blockLo(v4, v5, v6, v7);
+            for ( int shift = 56; shift >= 0; shift -= 8 ) {
+                output.put(outPos++, (byte) (hi >>> shift));
+            }
+            for ( int shift = 32; shift >= 0; shift -= 8 ) {
+                output.put(outPos++, (byte) (lo >>> shift));
+            }
+        }
+        int end = offset + groups * 2;
+        long acc = 0;
+        int bits = 0;
+        for ( ; i < end; i += 2 ) {
+            int val = pairValue(input.get(i), input.get(i + 1));
+            if ( val < 0 ) {
+                throw invalidInput(j -> input.get(j) & 0xFF, i, i + 2);
+            }
+            acc = (acc << 13) | val;
+            outPos = flush(acc, bits += 13, output, outPos);
+            bits &= 7;
+        }
+        return outPos;
+    }
+
+    /**
+     * Inverse of encodeBlock. The 8 group values are put back together into the two words
+     * with fixed shifts and written out as 13 bytes.
+     * Invalid pairs are negative, so one check on all of them covers the whole block.
+     * @return position after the block, or -1 if any of the values is invalid
+     */
+    private static int decodeBlock(int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7,
+                                   byte[] output, int outPos) {
+        if ( (v0 | v1 | v2 | v3 | v4 | v5 | v6 | v7) < 0 ) {
+            return -1;
+        }
+        long hi = blockHi(v0, v1, v2, v3, v4);
+        long lo = blockLo(v4, v5, v6, v7);
+        output[outPos] = (byte) (hi >>> 56);
+        output[outPos + 1] = (byte) (hi >>> 48);
+        output[outPos + 2] = (byte) (hi >>> 40);
+        output[outPos + 3] = (byte) (hi >>> 32);
+        output[outPos + 4] = (byte) (hi >>> 24);
+        output[outPos + 5] = (byte) (hi >>> 16);
+        output[outPos + 6] = (byte) (hi >>> 8);
+        output[outPos + 7] = (byte) hi;
+        output[outPos + 8] = (byte) (lo >>> 32);
+        output[outPos + 9] = (byte) (lo >>> 24);
+        output[outPos + 10] = (byte) (lo >>> 16);
+        output[outPos + 11] = (byte) (lo >>> 8);
+        output[outPos + 12] = (byte) lo;
+        return outPos + 13;
+    }
+
+    private static long blockHi(int v0, int v1, int v2, int v3, int v4) {
+        return ((long) v0 << 51) | ((long) v1 << 38) | ((long) v2 << 25) | ((long) v3 << 12) | (v4 >>> 1);
+    }
+
+    private static long blockLo(int v4, int v5, int v6, int v7) {
+        return ((long) (v4 & 1) << 39) | ((long) v5 << 26) | ((long) v6 << 13) | v7;
+    }
+
+    /**
+     * Writes the bytes completed by the tail of input[offset, offset + length), after
+     * decodeGroups has written everything before it. The bits of the last group that were
+     * left over are taken from its pair again.
+     */
+    private int decodeTail(CharSequence input, int offset, int length, byte[] output, int outPos) {
+        int groups = (length - 1) / 2;
+        int end = offset + groups * 2;
+        int used = (groups * 13) & 7;
+        int tail = tailBits(used, length % 2 == 0);
+        int val = (length % 2 == 0) ? pairValue(input.charAt(end), input.charAt(end + 1)) : digit(input.charAt(end));
+        if ( val < 0 ) {
+            throw invalidInput(input::charAt, end, offset + length);
+        }
+        if ( tail == 0 ) {
+            return outPos;
+        }
+        int last = (used == 0) ? 0 : pairValue(input.charAt(end - 2), input.charAt(end - 1));
+        return flushTail(last, used, val, tail, output, outPos);
+    }
+
+    private int decodeTail(char[] input, int offset, int length, byte[] output, int outPos) {
+        int groups = (length - 1) / 2;
+        int end = offset + groups * 2;
+        int used = (groups * 13) & 7;
+        int tail = tailBits(used, length % 2 == 0);
+        int val = (length % 2 == 0) ? pairValue(input[end], input[end + 1]) : digit(input[end]);
+        if ( val < 0 ) {
+            throw invalidInput(j -> input[j], end, offset + length);
+        }
+        if ( tail == 0 ) {
+            return outPos;
+        }
+        int last = (used == 0) ? 0 : pairValue(input[end - 2], input[end - 1]);
+        return flushTail(last, used, val, tail, output, outPos);
+    }
+
+    private int decodeTail(byte[] input, int offset, int length, byte[] output, int outPos) {
+        int groups = (length - 1) / 2;
+        int end = offset + groups * 2;
+        int used = (groups * 13) & 7;
+        int tail = tailBits(used, length % 2 == 0);
+        int val = (length % 2 == 0) ? pairValue(input[end], input[end + 1]) : digit(input[end]);
+        if ( val < 0 ) {
+            throw invalidInput(j -> input[j] & 0xFF, end, offset + length);
+        }
+        if ( tail == 0 ) {
+            return outPos;
+        }
+        int last = (used == 0) ? 0 : pairValue(input[end - 2], input[end - 1]);
+        return flushTail(last, used, val, tail, output, outPos);
+    }
+
+    private int decodeTail(ByteBuffer input, int offset, int length, ByteBuffer output, int outPos) {
+        int groups = (length - 1) / 2;
+        int end = offset + groups * 2;
+        int used = (groups * 13) & 7;
+        int tail = tailBits(used, length % 2 == 0);
+        int val = (length % 2 == 0) ? pairValue(input.get(end), input.get(end + 1)) : digit(input.get(end));
+        if ( val < 0 ) {
+            throw invalidInput(j -> input.get(j) & 0xFF, end, offset + length);
+        }
+        if ( tail == 0 ) {
+            return outPos;
+        }
+        int last = (used == 0) ? 0 : pairValue(input.get(end - 2), input.get(end - 1));
+        long acc = ((long) last << tail) | (val & ((1 << tail) - 1));
+        return flush(acc, used + tail, output, outPos);
+    }
+
+    /**
+     * The low used bits of last followed by the low tail bits of val make up the final bytes.
+     */
+    private static int flushTail(int last, int used, int val, int tail, byte[] output, int outPos) {
+        long acc = ((long) last << tail) | (val & ((1 << tail) - 1));
+        return flush(acc, used + tail, output, outPos);
+    }
+
+    /**
+     * Writes out all whole bytes held in the low bits of acc.
+     */
+    private static int flush(long acc, int bits, byte[] output, int outPos) {
+        while ( bits >= 8 ) {
+            bits -= 8;
+            output[outPos++] = (byte) (acc >>> bits);
+        }
+        return outPos;
+    }
+
+    private static int flush(long acc, int bits, ByteBuffer output, int outPos) {
+        while ( bits >= 8 ) {
+            bits -= 8;
+            output.put(outPos++, (byte) (acc >>> bits));
+        }
+        return outPos;
+    }
+
+    /**
+     * 13 bit value of a character pair, or a negative value if either character is outside
+     * the alphabet or the pair is 8192 or more. Branch free, so callers can OR the values of
+     * several pairs together and check once.
+     */
+    private int pairValue(int first, int second) {
+        if ( decodePairs != null ) {
+            return decodePairs[((first & 0x7F) << 7) | (second & 0x7F)] | -((first | second) >>> 7);
+        }
+        int high = digit(first);
+        int low = digit(second);
+        int val = high * 94 + low;
+        return val | ((high | low | (8191 - val)) >> 31);
+    }
+
+    private int pairValue(char first, char second) {
+        return pairValue((int) first, (int) second);
+    }
+
+    private int pairValue(byte first, byte second) {
+        return pairValue(first & 0xFF, second & 0xFF);
+    }
+
+    /**
+     * Digit of a character, -1 if it is outside the alphabet.
+     */
+    private int digit(int c) {
+        return reverse[c & 0xFF] | ((255 - c) >> 31);
+    }
+
+    private int digit(char c) {
+        return digit((int) c);
+    }
+
+    private int digit(byte b) {
+        return digit(b & 0xFF);
+    }
+
+    /**
+     * Slow path once a check has failed. Finds the first character outside the alphabet, or
+     * else the first pair out of range, in [offset, end) of the input read through charAt.
+     */
+    private DecodingException invalidInput(IntUnaryOperator charAt, int offset, int end) {
+        for ( int i = offset; i < end; i++ ) {
+            if ( digit(charAt.applyAsInt(i)) < 0 ) {
+                return new DecodingException("Illegal character", i);
+            }
+        }
+        for ( int i = offset; i + 1 < end; i += 2 ) {
+            if ( pairValue(charAt.applyAsInt(i), charAt.applyAsInt(i + 1)) < 0 ) {
+                return new DecodingException("Character pair out of range", i);
+            }
+        }
+        return new DecodingException("Invalid input", offset);
+    }
+
+    /**
+     * Checks that decodeString would accept the input, without decoding it:
+     * every character is in the alphabet and every pair is below 8192.
+     */
+    public boolean isValid(CharSequence input) {
+        int length = input.length();
+        int err = 0;
+        int i = 0;
+        for ( ; i + 1 < length; i += 2 ) {
+            err |= pairValue(input.charAt(i), input.charAt(i + 1));
+        }
+        if ( i < length ) {
+            err |= digit(input.charAt(i));
+        }
+        return err >= 0;
+    }
+
+    /**
+     * Encoded length of a long, an int and a UUID. The fixed width encoders below give the same
+     * characters as encodeString of the big endian bytes of the value, without the byte array.
+     */
+    public static final int LONG_CHARS = 10;
+    public static final int INT_CHARS = 5;
+    public static final int UUID_CHARS = 20;
+
+    /**
+     * 64 bits are 4 groups of 13 bits and a pair for the remaining 12.
+     */
+    public String encodeLong(long value) {
+        byte[] output = new byte[LONG_CHARS];
+        putLong(value, output, 0);
+        return new String(output, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writes LONG_CHARS characters for value into dst at dstOffset.
+     * @return position after the written characters
+     */
+    public int encodeLong(long value, char[] dst, int dstOffset) {
+        Checks.checkSpace(dst.length, dstOffset, LONG_CHARS);
+        return putLong(value, dst, dstOffset);
+    }
+
+    /**
+     * Encodes every value as LONG_CHARS characters, one after the other from the start of dst.
+     * @return number of characters written
+     */
+    public int encodeLongs(long[] values, char[] dst) {
+        Checks.checkSpace(dst.length, 0, longsLength(values.length));
+        int outPos = 0;
+        for ( long value : values ) {
+            outPos = putLong(value, dst, outPos);
+        }
+        return outPos;
+    }
+
+    public long decodeLong(CharSequence input) {
+        checkWidth(input, LONG_CHARS);
+        return readLong(input, 0);
+    }
+
+    /**
+     * Inverse of encodeLongs, decodes dst.length values from the start of src.
+     */
+    public void decodeLongs(char[] src, long[] dst) {
+        Checks.checkRange(src.length, 0, longsLength(dst.length));
+        for ( int i = 0; i < dst.length; i++ ) {
+            dst[i] = readLong(src, i * LONG_CHARS);
+        }
+    }
+
+    /**
+     * Characters taken by count fixed width longs, as encodedLength does for bytes.
+     */
+    static int longsLength(int count) {
+        long length = (long) count * LONG_CHARS;
+        if ( length > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException("Too many values to encode " + count);
+        }
+        return (int) length;
+    }
+
+    /**
+     * 32 bits are 2 groups of 13 bits and a single character for the remaining 6.
+     */
+    public String encodeInt(int value) {
+        byte[] output = new byte[INT_CHARS];
+        int outPos = putPair(value >>> 19, output, 0);
+        outPos = putPair((value >>> 6) & 0x1FFF, output, outPos);
+        output[outPos] = (byte) alphabet[value & 0x3F];
+        return new String(output, StandardCharsets.ISO_8859_1);
+    }
+
+    public int decodeInt(CharSequence input) {
+        checkWidth(input, INT_CHARS);
+        int v0 = pairValue(input.charAt(0), input.charAt(1));
+        int v1 = pairValue(input.charAt(2), input.charAt(3));
+        int tail = digit(input.charAt(4));
+        if ( (v0 | v1 | tail) < 0 ) {
+            throw invalidInput(input::charAt, 0, INT_CHARS);
+        }
+        return (v0 << 19) | (v1 << 6) | tail;
+    }
+
+    /**
+     * 128 bits are 9 groups of 13 bits and a pair for the remaining 11.
+     * Group 4 straddles the two longs, as in encodeBlock.
+     */
+    public String encodeUuid(UUID uuid) {
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        byte[] output = new byte[UUID_CHARS];
+        int outPos = putPair((int) (hi >>> 51), output, 0);
+        outPos = putPair((int) (hi >>> 38) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 25) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (hi >>> 12) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (((hi & 0xFFF) << 1) | (lo >>> 63)), output, outPos);
+        outPos = putPair((int) (lo >>> 50) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (lo >>> 37) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (lo >>> 24) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (lo >>> 11) & 0x1FFF, output, outPos);
+        //Same as the tail of encodeString, the low 12 bits of the last two bytes
+        putPair((int) lo & 0xFFF, output, outPos);
+        return new String(output, StandardCharsets.ISO_8859_1);
+    }
+
+    public UUID decodeUuid(CharSequence input) {
+        checkWidth(input, UUID_CHARS);
+        int err = 0;
+        long hi = 0;
+        long lo = 0;
+        for ( int i = 0; i < UUID_CHARS; i += 2 ) {
+            int val = pairValue(input.charAt(i), input.charAt(i + 1));
+            err |= val;
+            if ( i < 8 ) {
+                hi = (hi << 13) | val;
+            } else if ( i == 8 ) {
+                hi = (hi << 12) | (val >>> 1);
+                lo = val & 1;
+            } else if ( i < 18 ) {
+                lo = (lo << 13) | val;
+            } else {
+                lo = (lo << 11) | (val & 0x7FF);
+            }
+        }
+        if ( err < 0 ) {
+            throw invalidInput(input::charAt, 0, UUID_CHARS);
+        }
+        return new UUID(hi, lo);
+    }
+
+    private int putLong(long value, char[] output, int outPos) {
+        outPos = putPair((int) (value >>> 51), output, outPos);
+        outPos = putPair((int) (value >>> 38) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (value >>> 25) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (value >>> 12) & 0x1FFF, output, outPos);
+        return putPair((int) value & 0xFFF, output, outPos);
+    }
+
+    private int putLong(long value, byte[] output, int outPos) {
+        outPos = putPair((int) (value >>> 51), output, outPos);
+        outPos = putPair((int) (value >>> 38) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (value >>> 25) & 0x1FFF, output, outPos);
+        outPos = putPair((int) (value >>> 12) & 0x1FFF, output, outPos);
+        return putPair((int) value & 0xFFF, output, outPos);
+    }
+
+    private long readLong(CharSequence input, int offset) {
+        int v0 = pairValue(input.charAt(offset), input.charAt(offset + 1));
+        int v1 = pairValue(input.charAt(offset + 2), input.charAt(offset + 3));
+        int v2 = pairValue(input.charAt(offset + 4), input.charAt(offset + 5));
+        int v3 = pairValue(input.charAt(offset + 6), input.charAt(offset + 7));
+        int tail = pairValue(input.charAt(offset + 8), input.charAt(offset + 9));
+        if ( (v0 | v1 | v2 | v3 | tail) < 0 ) {
+            throw invalidInput(input::charAt, offset, offset + LONG_CHARS);
+        }
+        return ((long) v0 << 51) | ((long) v1 << 38) | ((long) v2 << 25) | ((long) v3 << 12) | (tail & 0xFFF);
+    }
+
+    private long readLong(char[] input, int offset) {
+        int v0 = pairValue(input[offset], input[offset + 1]);
+        int v1 = pairValue(input[offset + 2], input[offset + 3]);
+        int v2 = pairValue(input[offset + 4], input[offset + 5]);
+        int v3 = pairValue(input[offset + 6], input[offset + 7]);
+        int tail = pairValue(input[offset + 8], input[offset + 9]);
+        if ( (v0 | v1 | v2 | v3 | tail) < 0 ) {
+            throw invalidInput(j -> input[j], offset, offset + LONG_CHARS);
+        }
+        return ((long) v0 << 51) | ((long) v1 << 38) | ((long) v2 << 25) | ((long) v3 << 12) | (tail & 0xFFF);
+    }
+
+    private static void checkWidth(CharSequence input, int width) {
+        if ( input.length() != width ) {
+            throw new IllegalArgumentException("Expected " + width + " characters but got " + input.length());
+        }
+    }
+
+    /**
+     * Encodes every message into one ASCII array, message i ending up at
+     * [offsets[i], offsets[i + 1]) of the result. Two allocations for the whole batch.
+     */
+    public Batch encodeBatch(byte[][] messages) {
+        int[] offsets = new int[messages.length + 1];
+        long total = 0;
+        for ( int i = 0; i < messages.length; i++ ) {
+            total += encodedLength(messages[i].length);
+            offsets[i + 1] = checkBatchSize(total);
+        }
+        byte[] output = new byte[(int) total];
+        for ( int i = 0; i < messages.length; i++ ) {
+            encodeFused(messages[i], 0, messages[i].length, output, offsets[i]);
+        }
+        return new Batch(output, offsets);
+    }
+
+    /**
+     * Same as above for messages already packed in one array, see Batch.
+     */
+    public Batch encodeBatch(Batch messages) {
+        int count = messages.size();
+        int[] offsets = new int[count + 1];
+        long total = 0;
+        for ( int i = 0; i < count; i++ ) {
+            total += encodedLength(messages.length(i));
+            offsets[i + 1] = checkBatchSize(total);
+        }
+        byte[] output = new byte[(int) total];
+        byte[] data = messages.data;
+        for ( int i = 0; i < count; i++ ) {
+            encodeFused(data, messages.offsets[i], messages.length(i), output, offsets[i]);
+        }
+        return new Batch(output, offsets);
+    }
+
+    /**
+     * Inverse of encodeBatch, decodes every ASCII segment into one array of bytes indexed the same way.
+     * Invalid input throws DecodingException with the offset into encoded.data().
+     */
+    public Batch decodeBatch(Batch encoded) {
+        int count = encoded.size();
+        int[] offsets = new int[count + 1];
+        long total = 0;
+        for ( int i = 0; i < count; i++ ) {
+            total += maxDecodedLength(encoded.length(i));
+            offsets[i + 1] = checkBatchSize(total);
+        }
+        byte[] output = new byte[(int) total];
+        byte[] data = encoded.data;
+        for ( int i = 0; i < count; i++ ) {
+            int length = encoded.length(i);
+            if ( length > 0 ) {
+                decodeFused(data, encoded.offsets[i], length, output, offsets[i]);
+            }
+        }
+        return new Batch(output, offsets);
+    }
+
+    private static int checkBatchSize(long total) {
+        if ( total > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException("Batch too large for one array");
+        }
+        return (int) total;
+    }
+
+    /**
+     * Incremental encoder for input that arrives in chunks. Call update for every chunk and
+     * finish once at the end, the concatenated output is exactly what encodeString gives for
+     * the whole input. Whole 13 byte blocks are encoded as they arrive, up to 12 bytes are kept
+     * until the next update or finish. After finish (or reset) the encoder can be reused.
+     * Not thread safe.
+     */
+    public static final class Encoder {
+        private final Base94 base94;
+        private final byte[] pending = new byte[13];
+        private int pendingCount;
+        private boolean started;
+
+        private Encoder(Base94 base94) {
+            this.base94 = base94;
+        }
+
+        /**
+         * @return number of characters the next update with inputBytes bytes writes
+         */
+        public int updateLength(int inputBytes) {
+            return ((pendingCount + inputBytes) / 13) * 16;
+        }
+
+        /**
+         * @return number of characters finish writes if called now
+         */
+        public int finishLength() {
+            return pendingCount == 0 ? (started ? 1 : 0) : base94.encodedLength(pendingCount);
+        }
+
+        public int update(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+            Checks.checkRange(src.length, offset, length);
+            Checks.checkSpace(dst.length, dstOffset, updateLength(length));
+            int end = offset + length;
+            int outPos = dstOffset;
+            started |= length > 0;
+            if ( pendingCount > 0 ) {
+                offset = fillPending(src, offset, end);
+                if ( pendingCount < 13 ) {
+                    return 0;
+                }
+                outPos = base94.encodeGroups(pending, 0, 13, dst, outPos);
+                pendingCount = 0;
+            }
+            int whole = ((end - offset) / 13) * 13;
+            outPos = base94.encodeGroups(src, offset, whole, dst, outPos);
+            fillPending(src, offset + whole, end);
+            return outPos - dstOffset;
+        }
+
+        /**
+         * Same as above, each character is written as one ASCII byte.
+         */
+        public int update(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+            Checks.checkRange(src.length, offset, length);
+            Checks.checkSpace(dst.length, dstOffset, updateLength(length));
+            int end = offset + length;
+            int outPos = dstOffset;
+            started |= length > 0;
+            if ( pendingCount > 0 ) {
+                offset = fillPending(src, offset, end);
+                if ( pendingCount < 13 ) {
+                    return 0;
+                }
+                outPos = base94.encodeGroups(pending, 0, 13, dst, outPos);
+                pendingCount = 0;
+            }
+            int whole = ((end - offset) / 13) * 13;
+            outPos = base94.encodeGroups(src, offset, whole, dst, outPos);
+            fillPending(src, offset + whole, end);
+            return outPos - dstOffset;
+        }
+
+        public String update(byte[] chunk) {
+            char[] output = new char[updateLength(chunk.length)];
+            update(chunk, 0, chunk.length, output, 0);
+            return new String(output);
+        }
+
+        private int fillPending(byte[] src, int offset, int end) {
+            int take = Math.min(13 - pendingCount, end - offset);
+            System.arraycopy(src, offset, pending, pendingCount, take);
+            pendingCount += take;
+            return offset + take;
+        }
+
+        /**
+         * Writes the remaining groups and the tail, then resets the encoder.
+         * @return number of characters written
+         */
+        public int finish(char[] dst, int dstOffset) {
+            Checks.checkSpace(dst.length, dstOffset, finishLength());
+            int outPos;
+            if ( pendingCount == 0 ) {
+                //Input was a multiple of 13 bytes, the tail is a single 0 digit
+                outPos = started ? base94.encodeTail(0, 0, dst, dstOffset) : dstOffset;
+            } else {
+                outPos = base94.encodeFused(pending, 0, pendingCount, dst, dstOffset);
+            }
+            reset();
+            return outPos - dstOffset;
+        }
+
+        /**
+         * Same as above, each character is written as one ASCII byte.
+         */
+        public int finish(byte[] dst, int dstOffset) {
+            Checks.checkSpace(dst.length, dstOffset, finishLength());
+            int outPos;
+            if ( pendingCount == 0 ) {
+                outPos = started ? base94.encodeTail(0, 0, dst, dstOffset) : dstOffset;
+            } else {
+                outPos = base94.encodeFused(pending, 0, pendingCount, dst, dstOffset);
+            }
+            reset();
+            return outPos - dstOffset;
+        }
+
+        public String finish() {
+            char[] output = new char[finishLength()];
+            finish(output, 0);
+            return new String(output);
+        }
+
+        /**
+         * Drops any pending input so the encoder can be used for a new message.
+         */
+        public void reset() {
+            pendingCount = 0;
+            started = false;
+        }
+    }
+
+    /**
+     * Incremental decoder for encoded characters that arrive in chunks. Call update for every
+     * chunk and finish once at the end, the concatenated output is exactly what decodeString
+     * gives for the whole input. Whole 16 character blocks are decoded as they arrive as long as
+     * more characters follow them, since only at the end is it known whether the tail is a pair or a
+     * single character. After finish (or reset) the decoder can be reused. Not thread safe.
+     */
+    public static final class Decoder {
+        private final Base94 base94;
+        private final char[] pending = new char[16];
+        private int pendingCount;
+
+        private Decoder(Base94 base94) {
+            this.base94 = base94;
+        }
+
+        /**
+         * @return number of bytes the next update with inputChars characters writes
+         */
+        public int updateLength(int inputChars) {
+            return ((pendingCount + inputChars - 1) / 16) * 13;
+        }
+
+        /**
+         * @return number of bytes finish writes if called now
+         */
+        public int finishLength() {
+            return base94.maxDecodedLength(pendingCount);
+        }
+
+        public int update(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+            Checks.checkRange(src.length(), offset, length);
+            Checks.checkSpace(dst.length, dstOffset, updateLength(length));
+            int end = offset + length;
+            int outPos = dstOffset;
+            if ( pendingCount > 0 ) {
+                offset = fillPending(src, offset, end);
+                if ( pendingCount < 16 || offset == end ) {
+                    return 0;
+                }
+                outPos = base94.decodeGroups(pending, 0, 8, dst, outPos);
+                pendingCount = 0;
+            }
+            //Always keep at least one character back
+            int blocks = (end - offset - 1) / 16;
+            if ( blocks > 0 ) {
+                outPos = base94.decodeGroups(src, offset, blocks * 8, dst, outPos);
+                offset += blocks * 16;
+            }
+            fillPending(src, offset, end);
+            return outPos - dstOffset;
+        }
+
+        public int update(char[] src, int offset, int length, byte[] dst, int dstOffset) {
+            Checks.checkRange(src.length, offset, length);
+            Checks.checkSpace(dst.length, dstOffset, updateLength(length));
+            int end = offset + length;
+            int outPos = dstOffset;
+            if ( pendingCount > 0 ) {
+                offset = fillPending(src, offset, end);
+                if ( pendingCount < 16 || offset == end ) {
+                    return 0;
+                }
+                outPos = base94.decodeGroups(pending, 0, 8, dst, outPos);
+                pendingCount = 0;
+            }
+            int blocks = (end - offset - 1) / 16;
+            if ( blocks > 0 ) {
+                outPos = base94.decodeGroups(src, offset, blocks * 8, dst, outPos);
+                offset += blocks * 16;
+            }
+            fillPending(src, offset, end);
+            return outPos - dstOffset;
+        }
+
+        /**
+         * Same as above, src holds one ASCII byte per encoded character.
+         */
+        public int update(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+            Checks.checkRange(src.length, offset, length);
+            Checks.checkSpace(dst.length, dstOffset, updateLength(length));
+            int end = offset + length;
+            int outPos = dstOffset;
+            if ( pendingCount > 0 ) {
+                offset = fillPending(src, offset, end);
+                if ( pendingCount < 16 || offset == end ) {
+                    return 0;
+                }
+                outPos = base94.decodeGroups(pending, 0, 8, dst, outPos);
+                pendingCount = 0;
+            }
+            int blocks = (end - offset - 1) / 16;
+            if ( blocks > 0 ) {
+                outPos = base94.decodeGroups(src, offset, blocks * 8, dst, outPos);
+                offset += blocks * 16;
+            }
+            fillPending(src, offset, end);
+            return outPos - dstOffset;
+        }
+
+        public byte[] update(CharSequence chunk) {
+            byte[] output = new byte[updateLength(chunk.length())];
+            update(chunk, 0, chunk.length(), output, 0);
+            return output;
+        }
+
+        private int fillPending(CharSequence src, int offset, int end) {
+            int take = Math.min(16 - pendingCount, end - offset);
+            for ( int i = 0; i < take; i++ ) {
+                pending[pendingCount++] = src.charAt(offset + i);
+            }
+            return offset + take;
+        }
+
+        private int fillPending(char[] src, int offset, int end) {
+            int take = Math.min(16 - pendingCount, end - offset);
+            System.arraycopy(src, offset, pending, pendingCount, take);
+            pendingCount += take;
+            return offset + take;
+        }
+
+        private int fillPending(byte[] src, int offset, int end) {
+            int take = Math.min(16 - pendingCount, end - offset);
+            for ( int i = 0; i < take; i++ ) {
+                pending[pendingCount++] = (char) (src[offset + i] & 0xFF);
+            }
+            return offset + take;
+        }
+
+        /**
+         * Decodes the held back characters including the tail, then resets the decoder.
+         * @return number of bytes written
+         */
+        public int finish(byte[] dst, int dstOffset) {
+            Checks.checkSpace(dst.length, dstOffset, finishLength());
+            try {
+                return base94.decodeFused(pending, 0, pendingCount, dst, dstOffset) - dstOffset;
+            } finally {
+                reset();
+            }
+        }
+
+        public byte[] finish() {
+            byte[] output = new byte[finishLength()];
+            finish(output, 0);
+            return output;
+        }
+
+        /**
+         * Drops any held back characters so the decoder can be used for a new message.
+         */
+        public void reset() {
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Segments packed one after the other into a single array, segment i is
+     * data[offsets[i], offsets[i + 1]). Used for both sides of encodeBatch and decodeBatch.
+     * The arrays are shared, not copied.
+     */
+    public static final class Batch {
+
+        private final byte[] data;
+        private final int[] offsets;
+
+        /**
+         * @param offsets size() + 1 non decreasing positions into data
+         */
+        public Batch(byte[] data, int[] offsets) {
+            if ( offsets.length == 0 ) {
+                throw new IllegalArgumentException("Offsets need at least one entry");
+            }
+            for ( int i = 0; i < offsets.length; i++ ) {
+                if ( offsets[i] < (i == 0 ? 0 : offsets[i - 1]) || offsets[i] > data.length ) {
+                    throw new IllegalArgumentException("Offset " + i + " out of order or out of bounds: " + offsets[i]);
+                }
+            }
+            this.data = data;
+            this.offsets = offsets;
+        }
+
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        public byte[] data() {
+            return data;
+        }
+
+        public int[] offsets() {
+            return offsets;
+        }
+
+        public int offset(int i) {
+            return offsets[i];
+        }
+
+        public int length(int i) {
+            return offsets[i + 1] - offsets[i];
+        }
+
+        public byte[] get(int i) {
+            return Arrays.copyOfRange(data, offsets[i], offsets[i + 1]);
+        }
+
+        /**
+         * Segment i as a String, for a batch of encoded characters.
+         */
+        public String getString(int i) {
+            return new String(data, offsets[i], length(i), StandardCharsets.ISO_8859_1);
         }
-        return decode(output);
     }
 }
@@ -0,0 +1,105 @@
+package com.chipmandal.encoding;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to the decoded bytes of an encoded file, such as one written by Base94Files.
+ * A read only fetches and decodes the 16 character blocks covering the requested range, and
+ * the tail characters when the range reaches the end. Reads are positional, so one reader
+ * can be shared by several threads.
+ */
+public final class Base94BlockReader implements Closeable {
+
+    private final Base94 base94;
+    private final FileChannel channel;
+    private final long chars;
+    private final long fullBlocks;
+    private final long length;
+
+    public Base94BlockReader(Path encoded) throws IOException {
+        this(BaseEncoding.Base94, encoded);
+    }
+
+    public Base94BlockReader(Base94 base94, Path encoded) throws IOException {
+        this.base94 = base94;
+        this.channel = FileChannel.open(encoded, StandardOpenOption.READ);
+        this.chars = channel.size();
+        //The last 1 - 16 characters hold the tail, everything before is whole blocks
+        this.fullBlocks = (chars == 0) ? 0 : (chars - 1) / 16;
+        this.length = (chars == 0) ? 0 : fullBlocks * 13 + base94.maxDecodedLength((int) (chars - fullBlocks * 16));
+    }
+
+    /**
+     * @return number of decoded bytes in the file
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Decodes bytes [position, position + count) into a new array.
+     */
+    public byte[] read(long position, int count) throws IOException {
+        if ( position < 0 || count < 0 || position > length - count ) {
+            throw new IndexOutOfBoundsException("Range [" + position + ", " + position + " + " + count + ") out of bounds for length " + length);
+        }
+        byte[] output = new byte[count];
+        read(position, output, 0, count);
+        return output;
+    }
+
+    /**
+     * Decodes up to count bytes starting at position into dst.
+     * @return number of bytes read, -1 if position is at or past the end
+     */
+    public int read(long position, byte[] dst, int offset, int count) throws IOException {
+        Checks.checkRange(dst.length, offset, count);
+        if ( position < 0 ) {
+            throw new IllegalArgumentException("Negative position " + position);
+        }
+        if ( position >= length ) {
+            return -1;
+        }
+        count = (int) Math.min(count, length - position);
+        if ( count == 0 ) {
+            return 0;
+        }
+        long firstBlock = position / 13;
+        long endBlock = (position + count - 1) / 13 + 1;
+        long from = firstBlock * 16;
+        long to = (endBlock > fullBlocks) ? chars : endBlock * 16;
+        ByteBuffer encoded = ByteBuffer.allocate((int) (to - from));
+        while ( encoded.hasRemaining() ) {
+            if ( channel.read(encoded, from + encoded.position()) < 0 ) {
+                throw new EOFException("File shorter than expected");
+            }
+        }
+        ByteBuffer decoded = ByteBuffer.allocate((int) (endBlock - firstBlock) * 13);
+        int blocks = (int) (Math.min(endBlock, fullBlocks) - firstBlock);
+        try {
+            if ( blocks > 0 ) {
+                base94.decodeBlocks(encoded, 0, blocks, decoded, 0);
+            }
+            if ( endBlock > fullBlocks ) {
+                encoded.position(blocks * 16);
+                decoded.position(blocks * 13);
+                base94.decode(encoded, decoded);
+            }
+        } catch (DecodingException e) {
+            throw e.shift(from);
+        }
+        System.arraycopy(decoded.array(), (int) (position - firstBlock * 13), dst, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,182 @@
+package com.chipmandal.encoding;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Encodes and decodes files of any size through memory mapped windows, writing the encoded
+ * characters as ASCII. Windows hold a whole number of 13 byte blocks (16 characters), so they
+ * are independent of each other and can be done by several threads. Only the last piece, which
+ * holds the tail, goes through the regular ByteBuffer encode or decode.
+ *
+ * Usage: java -jar Encoding.jar encode|decode input output [threads]
+ */
+public final class Base94Files {
+
+    //6.5 MB of input, 8 MB of characters per window
+    static final int WINDOW_BLOCKS = 1 << 19;
+
+    private Base94Files() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if ( args.length < 3 || args.length > 4 || !(args[0].equals("encode") || args[0].equals("decode")) ) {
+            System.err.println("Usage: encode|decode input output [threads]");
+            System.exit(2);
+        }
+        int threads = (args.length == 4) ? Integer.parseInt(args[3]) : 1;
+        Path input = Paths.get(args[1]);
+        Path output = Paths.get(args[2]);
+        if ( args[0].equals("encode") ) {
+            encode(BaseEncoding.Base94, input, output, threads);
+        } else {
+            decode(BaseEncoding.Base94, input, output, threads);
+        }
+    }
+
+    public static long encode(Path input, Path output) throws IOException {
+        return encode(BaseEncoding.Base94, input, output, 1);
+    }
+
+    public static long decode(Path input, Path output) throws IOException {
+        return decode(BaseEncoding.Base94, input, output, 1);
+    }
+
+    /**
+     * Encodes input into output, replacing it.
+     * @return number of characters written
+     */
+    public static long encode(Base94 base94, Path input, Path output, int threads) throws IOException {
+        return encode(base94, input, output, threads, WINDOW_BLOCKS);
+    }
+
+    /**
+     * Decodes the ASCII characters in input into output, replacing it. Invalid input throws
+     * DecodingException with the offset in the input file.
+     * @return number of bytes written
+     */
+    public static long decode(Base94 base94, Path input, Path output, int threads) throws IOException {
+        return decode(base94, input, output, threads, WINDOW_BLOCKS);
+    }
+
+    static long encode(Base94 base94, Path input, Path output, int threads, int windowBlocks) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(input.toFile(), "r");
+             RandomAccessFile out = new RandomAccessFile(output.toFile(), "rw")) {
+            FileChannel inChannel = in.getChannel();
+            FileChannel outChannel = out.getChannel();
+            long length = inChannel.size();
+            if ( length == 0 ) {
+                out.setLength(0);
+                return 0;
+            }
+            //The last 1 - 13 bytes carry the tail, everything before is whole blocks
+            long blocks = (length - 1) / 13;
+            int rest = (int) (length - blocks * 13);
+            long encodedLength = blocks * 16 + base94.encodedLength(rest);
+            out.setLength(encodedLength);
+
+            int windows = (int) ((blocks + windowBlocks - 1) / windowBlocks);
+            forEachWindow(windows, threads, window -> {
+                long first = (long) window * windowBlocks;
+                int count = (int) Math.min(windowBlocks, blocks - first);
+                ByteBuffer src = inChannel.map(FileChannel.MapMode.READ_ONLY, first * 13, count * 13L);
+                ByteBuffer dst = outChannel.map(FileChannel.MapMode.READ_WRITE, first * 16, count * 16L);
+                base94.encodeBlocks(src, 0, count, dst, 0);
+            });
+            ByteBuffer src = inChannel.map(FileChannel.MapMode.READ_ONLY, blocks * 13, rest);
+            ByteBuffer dst = outChannel.map(FileChannel.MapMode.READ_WRITE, blocks * 16, encodedLength - blocks * 16);
+            base94.encode(src, dst);
+            return encodedLength;
+        }
+    }
+
+    static long decode(Base94 base94, Path input, Path output, int threads, int windowBlocks) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(input.toFile(), "r");
+             RandomAccessFile out = new RandomAccessFile(output.toFile(), "rw")) {
+            FileChannel inChannel = in.getChannel();
+            FileChannel outChannel = out.getChannel();
+            long length = inChannel.size();
+            if ( length == 0 ) {
+                out.setLength(0);
+                return 0;
+            }
+            //The last 1 - 16 characters carry the tail, everything before is whole blocks
+            long blocks = (length - 1) / 16;
+            int rest = (int) (length - blocks * 16);
+            long decodedLength = blocks * 13 + base94.maxDecodedLength(rest);
+            out.setLength(decodedLength);
+
+            int windows = (int) ((blocks + windowBlocks - 1) / windowBlocks);
+            forEachWindow(windows, threads, window -> {
+                long first = (long) window * windowBlocks;
+                int count = (int) Math.min(windowBlocks, blocks - first);
+                ByteBuffer src = inChannel.map(FileChannel.MapMode.READ_ONLY, first * 16, count * 16L);
+                ByteBuffer dst = outChannel.map(FileChannel.MapMode.READ_WRITE, first * 13, count * 13L);
+                try {
+                    base94.decodeBlocks(src, 0, count, dst, 0);
+                } catch (DecodingException e) {
+                    throw e.shift(first * 16);
+                }
+            });
+            ByteBuffer src = inChannel.map(FileChannel.MapMode.READ_ONLY, blocks * 16, rest);
+            ByteBuffer dst = outChannel.map(FileChannel.MapMode.READ_WRITE, blocks * 13, decodedLength - blocks * 13);
+            try {
+                base94.decode(src, dst);
+            } catch (DecodingException e) {
+                throw e.shift(blocks * 16);
+            }
+            return decodedLength;
+        }
+    }
+
+    private interface WindowTask {
+        void run(int window) throws IOException;
+    }
+
+    private static void forEachWindow(int windows, int threads, WindowTask task) throws IOException {
+        if ( threads <= 1 || windows <= 1 ) {
+            for ( int window = 0; window < windows; window++ ) {
+                task.run(window);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, windows));
+        try {
+            List<Future<?>> futures = new ArrayList<>(windows);
+            for ( int window = 0; window < windows; window++ ) {
+                int current = window;
+                futures.add(executor.submit(() -> {
+                    task.run(current);
+                    return null;
+                }));
+            }
+            for ( Future<?> future : futures ) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.chipmandal.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads ASCII encoded characters from the wrapped stream and returns the decoded bytes.
+ * Whether the last characters are a pair or a single tail character is only known at the end
+ * of the stream, the Base94.Decoder holds them back until then.
+ * See Base94.wrap(InputStream).
+ */
+class Base94InputStream extends InputStream {
+
+    private final InputStream in;
+    private final Base94.Decoder decoder;
+
+    //Encoded characters read from in
+    private final byte[] chars = new byte[8192];
+
+    //Decoded bytes not handed out yet
+    private final byte[] decoded = new byte[8192];
+    private int decodedStart;
+    private int decodedEnd;
+
+    private final byte[] single = new byte[1];
+    private boolean eof;
+    private boolean closed;
+
+    Base94InputStream(InputStream in, Base94 base94) {
+        this.in = in;
+        this.decoder = base94.newDecoder();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if ( closed ) {
+            throw new IOException("Stream is closed");
+        }
+        if ( off < 0 || len < 0 || off > b.length - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( len == 0 ) {
+            return 0;
+        }
+        while ( decodedStart == decodedEnd ) {
+            if ( eof ) {
+                return -1;
+            }
+            fill();
+        }
+        int n = Math.min(len, decodedEnd - decodedStart);
+        System.arraycopy(decoded, decodedStart, b, off, n);
+        decodedStart += n;
+        return n;
+    }
+
+    private void fill() throws IOException {
+        decodedStart = 0;
+        int n = in.read(chars, 0, chars.length);
+        try {
+            if ( n < 0 ) {
+                eof = true;
+                decodedEnd = decoder.finish(decoded, 0);
+            } else {
+                decodedEnd = decoder.update(chars, 0, n, decoded, 0);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Base94 input", e);
+        }
+    }
+
+    @Override
+    public int available() {
+        return decodedEnd - decodedStart;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            in.close();
+        }
+    }
+}
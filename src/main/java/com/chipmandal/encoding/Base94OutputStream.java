@@ -0,0 +1,82 @@
+package com.chipmandal.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes everything written to it and writes the characters as ASCII bytes to the wrapped stream.
+ * The partial 13 byte block is carried across writes by a Base94.Encoder, the tail is written on close.
+ * See Base94.wrap(OutputStream).
+ */
+class Base94OutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final Base94.Encoder encoder;
+    private final byte[] buffer = new byte[8192];
+    private final byte[] single = new byte[1];
+    private int position;
+    private boolean closed;
+
+    //Largest input whose output always fits an empty buffer, whatever the encoder holds
+    private static final int CHUNK = (8192 / 16 - 1) * 13;
+
+    Base94OutputStream(OutputStream out, Base94 base94) {
+        this.out = out;
+        this.encoder = base94.newEncoder();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if ( closed ) {
+            throw new IOException("Stream is closed");
+        }
+        if ( off < 0 || len < 0 || off > b.length - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        while ( len > 0 ) {
+            int n = Math.min(len, CHUNK);
+            if ( encoder.updateLength(n) > buffer.length - position ) {
+                flushBuffer();
+            }
+            position += encoder.update(b, off, n, buffer, position);
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if ( position > 0 ) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Writes out the complete blocks so far. The last partial block can only be written by close.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        if ( encoder.finishLength() > buffer.length - position ) {
+            flushBuffer();
+        }
+        position += encoder.finish(buffer, position);
+        flushBuffer();
+        out.close();
+    }
+}
@@ -1,5 +1,6 @@
 package com.chipmandal.encoding;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public interface BaseEncoding {
@@ -8,10 +9,78 @@ public interface BaseEncoding {
 
     Base94 Base94 = new Base94(standardAlphabet);
 
+    /**
+     * The 94 printable ASCII characters in code point order. Pairs are written high digit first,
+     * so with this alphabet encoded values compare like their unsigned input bytes, for inputs
+     * of the same length.
+     */
+    char[] orderedAlphabet =
+            "!\"#$%&'()*+,-./0123456789:;<=>?@ABCDEFGHIJKLMNOPQRSTUVWXYZ[\\]^_`abcdefghijklmnopqrstuvwxyz{|}~".toCharArray();
+
+    Base94 Base94Ordered = new Base94(orderedAlphabet);
+
     byte[] encode(byte [] input);
     String encodeString(byte [] input);
     byte[] decode(byte [] input);
     byte[] decodeString(String input);
 
+    /**
+     * Same as encodeString, with one ASCII byte per encoded character.
+     */
+    byte[] encodeToAsciiBytes(byte [] input);
+
+    /**
+     * Same as decodeString, for one ASCII byte per encoded character.
+     */
+    byte[] decodeAscii(byte [] asciiChars);
+
+    /**
+     * @return number of characters that encoding inputBytes bytes produces,
+     *         an upper bound for variable length encodings such as Base91
+     */
+    int encodedLength(int inputBytes);
+
+    /**
+     * @return largest number of bytes that inputChars encoded characters can decode to
+     */
+    int maxDecodedLength(int inputChars);
+
+    /**
+     * Encodes src[offset, offset + length) into dst starting at dstOffset, without allocating.
+     * @return number of characters written
+     */
+    int encodeInto(byte[] src, int offset, int length, char[] dst, int dstOffset);
+
+    /**
+     * Same as above, each encoded character is written as one ASCII byte.
+     * @return number of bytes written
+     */
+    int encodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    /**
+     * Decodes the characters src[offset, offset + length) into dst starting at dstOffset, without allocating.
+     * @return number of bytes written
+     */
+    int decodeInto(CharSequence src, int offset, int length, byte[] dst, int dstOffset);
+
+    int decodeInto(char[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    /**
+     * Same as above, src holds one ASCII byte per encoded character.
+     */
+    int decodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+    /**
+     * Encodes the remaining bytes of src into dst as ASCII bytes, heap or direct buffers.
+     * @return number of bytes written
+     */
+    int encode(ByteBuffer src, ByteBuffer dst);
+
+    /**
+     * Decodes the remaining ASCII bytes of src into dst, heap or direct buffers.
+     * @return number of bytes written
+     */
+    int decode(ByteBuffer src, ByteBuffer dst);
+
 
 }
@@ -0,0 +1,21 @@
+package com.chipmandal.encoding;
+
+/**
+ * Whole block encoder into ASCII byte arrays for Base94.Strategy.VECTOR. The implementation,
+ * Base94Vector, uses jdk.incubator.vector and is only compiled by the vector profile, see
+ * Base94.isVectorAvailable.
+ *
+ * It may stop early, near the end of the input, and returns the number of blocks done. Base94
+ * carries on from there with the scalar kernels.
+ *
+ * There is no decode kernel: the 16 lane table lookups and the scalar packing of the groups made
+ * it slower than Base94.decodeGroups.
+ */
+interface BlockKernel {
+
+    /**
+     * Encodes up to blocks 13 byte blocks from input[offset] into 16 characters each at output[outPos].
+     * @return number of blocks encoded
+     */
+    int encodeBlocks(byte[] input, int offset, int blocks, byte[] output, int outPos);
+}
@@ -0,0 +1,40 @@
+package com.chipmandal.encoding;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Concurrent map holding at most maxSize entries. Lookups are a plain ConcurrentHashMap get.
+ * When full, an arbitrary entry is dropped to make room, which is enough for caches of values
+ * that are cheap to rebuild compared to how often they are used.
+ */
+final class BoundedCache<K, V> {
+
+    private final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    V get(K key, Function<? super K, ? extends V> factory) {
+        V value = map.get(key);
+        if ( value != null ) {
+            return value;
+        }
+        if ( map.size() >= maxSize ) {
+            Iterator<K> keys = map.keySet().iterator();
+            while ( map.size() >= maxSize && keys.hasNext() ) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        return map.computeIfAbsent(key, factory);
+    }
+
+    int size() {
+        return map.size();
+    }
+}
@@ -0,0 +1,25 @@
+package com.chipmandal.encoding;
+
+/**
+ * Argument checks shared by the encodeInto and decodeInto implementations.
+ */
+final class Checks {
+
+    private Checks() {
+    }
+
+    static void checkRange(int arrayLength, int offset, int length) {
+        if ( offset < 0 || length < 0 || offset > arrayLength - length ) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + arrayLength);
+        }
+    }
+
+    static void checkSpace(int arrayLength, int offset, int needed) {
+        if ( offset < 0 || offset > arrayLength ) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + arrayLength);
+        }
+        if ( arrayLength - offset < needed ) {
+            throw new IllegalArgumentException("Output array too small, needs " + needed + " but has " + (arrayLength - offset));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.chipmandal.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compress then encode in one streaming pass. The compressor writes into the encoding stream
+ * through fixed size buffers, so neither the compressed nor the encoded payload is ever held
+ * as a whole. The encoded data starts with a two byte header, a magic byte and the codec id,
+ * so the decoder picks the codec by itself.
+ */
+public final class CompressedBase94 {
+
+    public enum Codec {
+        /** Header only, for data that does not compress. */
+        NONE(0),
+        DEFLATE(1);
+
+        private final int id;
+
+        Codec(int id) {
+            this.id = id;
+        }
+
+        static Codec forId(int id) throws IOException {
+            for ( Codec codec : values() ) {
+                if ( codec.id == id ) {
+                    return codec;
+                }
+            }
+            throw new IOException("Unknown codec " + id);
+        }
+    }
+
+    static final int MAGIC = 0x94;
+    private static final int BUFFER_SIZE = 8192;
+
+    private CompressedBase94() {
+    }
+
+    public static OutputStream encoder(OutputStream out) throws IOException {
+        return encoder(BaseEncoding.Base94, out, Codec.DEFLATE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Bytes written are compressed with codec and encoded as ASCII characters to out.
+     * Closing the returned stream finishes both and closes out.
+     */
+    public static OutputStream encoder(Base94 base94, OutputStream out, Codec codec, int level) throws IOException {
+        OutputStream encoded = base94.wrap(out);
+        encoded.write(MAGIC);
+        encoded.write(codec.id);
+        if ( codec == Codec.NONE ) {
+            return encoded;
+        }
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(encoded, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    public static InputStream decoder(InputStream in) throws IOException {
+        return decoder(BaseEncoding.Base94, in);
+    }
+
+    /**
+     * Reads encoded ASCII characters from in and returns the decoded, decompressed bytes.
+     * The header is read right away.
+     */
+    public static InputStream decoder(Base94 base94, InputStream in) throws IOException {
+        InputStream decoded = base94.wrap(in);
+        int magic = decoded.read();
+        int id = decoded.read();
+        if ( magic != MAGIC || id < 0 ) {
+            decoded.close();
+            throw new IOException("Not a compressed Base94 stream");
+        }
+        Codec codec;
+        try {
+            codec = Codec.forId(id);
+        } catch (IOException e) {
+            decoded.close();
+            throw e;
+        }
+        if ( codec == Codec.NONE ) {
+            return decoded;
+        }
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(decoded, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    public static String encodeString(byte[] input) {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(input.length / 2 + 16);
+        try (OutputStream out = encoder(sink)) {
+            out.write(input);
+        } catch (IOException e) {
+            //Only the in memory sink is written to
+            throw new IllegalStateException(e);
+        }
+        return new String(sink.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @throws IllegalArgumentException if input is not valid compressed Base94
+     */
+    public static byte[] decodeString(CharSequence input) {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(input.length());
+        try (InputStream in = decoder(new CharSequenceInputStream(input))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ( (n = in.read(buffer)) != -1 ) {
+                decoded.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid compressed Base94 input", e);
+        }
+        return decoded.toByteArray();
+    }
+
+    /**
+     * Characters as single bytes, anything above 255 as 0 so it fails decoding instead of
+     * being folded onto a valid character.
+     */
+    private static final class CharSequenceInputStream extends InputStream {
+        private final CharSequence chars;
+        private int position;
+
+        CharSequenceInputStream(CharSequence chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read() {
+            if ( position == chars.length() ) {
+                return -1;
+            }
+            char c = chars.charAt(position++);
+            return c < 256 ? c : 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if ( len == 0 ) {
+                return 0;
+            }
+            if ( position == chars.length() ) {
+                return -1;
+            }
+            int n = Math.min(len, chars.length() - position);
+            for ( int i = 0; i < n; i++ ) {
+                char c = chars.charAt(position++);
+                b[off + i] = (byte) (c < 256 ? c : 0);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.chipmandal.encoding;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli), as java.util.zip.CRC32C which is only there from Java 9 on.
+ * Slicing by 8: eight 256 entry tables let the main loop take 8 bytes per step.
+ */
+final class Crc32c implements Checksum {
+
+    //Reflected 0x1EDC6F41
+    private static final int POLY = 0x82F63B78;
+    private static final int[][] TABLE = new int[8][256];
+
+    static {
+        for ( int n = 0; n < 256; n++ ) {
+            int c = n;
+            for ( int k = 0; k < 8; k++ ) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+            }
+            TABLE[0][n] = c;
+        }
+        for ( int n = 0; n < 256; n++ ) {
+            for ( int k = 1; k < 8; k++ ) {
+                int previous = TABLE[k - 1][n];
+                TABLE[k][n] = (previous >>> 8) ^ TABLE[0][previous & 0xFF];
+            }
+        }
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[0][(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int[] t0 = TABLE[0], t1 = TABLE[1], t2 = TABLE[2], t3 = TABLE[3];
+        int[] t4 = TABLE[4], t5 = TABLE[5], t6 = TABLE[6], t7 = TABLE[7];
+        int c = crc;
+        int end = off + len;
+        for ( ; off + 8 <= end; off += 8 ) {
+            c ^= (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+            c = t7[c & 0xFF] ^ t6[(c >>> 8) & 0xFF] ^ t5[(c >>> 16) & 0xFF] ^ t4[c >>> 24]
+                    ^ t3[b[off + 4] & 0xFF] ^ t2[b[off + 5] & 0xFF] ^ t1[b[off + 6] & 0xFF] ^ t0[b[off + 7] & 0xFF];
+        }
+        for ( ; off < end; off++ ) {
+            c = (c >>> 8) ^ t0[(c ^ b[off]) & 0xFF];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
@@ -0,0 +1,35 @@
+package com.chipmandal.encoding;
+
+/**
+ * Thrown when encoded input cannot be decoded. Carries the offset of the offending character
+ * (or the first character of the offending pair) in the input.
+ */
+public class DecodingException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+    private final long offset;
+
+    public DecodingException(String reason, long offset) {
+        this(reason, offset, null);
+    }
+
+    public DecodingException(String reason, long offset, Throwable cause) {
+        super(reason + " at offset " + offset, cause);
+        this.reason = reason;
+        this.offset = offset;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Same error moved by delta, for input that was decoded from a copy. This one is the cause,
+     * so the stack trace of where it was found is kept.
+     */
+    DecodingException shift(long delta) {
+        return new DecodingException(reason, offset + delta, this);
+    }
+}
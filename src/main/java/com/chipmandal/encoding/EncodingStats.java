@@ -0,0 +1,117 @@
+package com.chipmandal.encoding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the counters InstrumentedEncoding keeps for one kind of operation (encode or decode).
+ * Latencies are kept as histograms per payload size bucket, with power of two nanosecond buckets:
+ * latency bucket i counts calls that took [2^(i-1), 2^i) nanoseconds.
+ */
+public final class EncodingStats {
+
+    //Upper bounds (inclusive) of the payload size buckets, in input bytes or characters
+    private static final long[] SIZE_BUCKETS = {64, 1 << 10, 1 << 14, 1 << 18, 1 << 22, Long.MAX_VALUE};
+
+    public static final int SIZE_BUCKET_COUNT = SIZE_BUCKETS.length;
+
+    public static final int LATENCY_BUCKETS = 40;
+
+    private final long calls;
+    private final long failures;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final long[][] latency;
+
+    EncodingStats(long calls, long failures, long bytesIn, long bytesOut, long[][] latency) {
+        this.calls = calls;
+        this.failures = failures;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.latency = latency;
+    }
+
+    /**
+     * @return completed calls, failed ones not included
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getLatencyCount(int sizeBucket, int latencyBucket) {
+        return latency[sizeBucket][latencyBucket];
+    }
+
+    public long getCalls(int sizeBucket) {
+        long count = 0;
+        for ( long c : latency[sizeBucket] ) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * @param quantile 0 - 1, e.g. 0.99
+     * @return upper bound in nanoseconds of the latency bucket holding that quantile for the size
+     *         bucket, 0 if there were no calls
+     */
+    public long getLatencyNanos(int sizeBucket, double quantile) {
+        long total = getCalls(sizeBucket);
+        if ( total == 0 ) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for ( int i = 0; i < LATENCY_BUCKETS; i++ ) {
+            seen += latency[sizeBucket][i];
+            if ( seen >= rank && seen > 0 ) {
+                return 1L << i;
+            }
+        }
+        return 1L << (LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * @return the latency histogram of every size bucket, in bucket order, keyed by its size
+     *         range ("<=64" ... ">4194304"), each LATENCY_BUCKETS counts
+     */
+    public Map<String, long[]> getLatencyHistograms() {
+        Map<String, long[]> histograms = new LinkedHashMap<>();
+        for ( int size = 0; size < SIZE_BUCKET_COUNT; size++ ) {
+            String key = SIZE_BUCKETS[size] == Long.MAX_VALUE ? ">" + SIZE_BUCKETS[size - 1] : "<=" + SIZE_BUCKETS[size];
+            histograms.put(key, latency[size].clone());
+        }
+        return histograms;
+    }
+
+    /**
+     * @return a copy of the upper bounds (inclusive) of the payload size buckets, in input bytes or characters
+     */
+    public static long[] getSizeBuckets() {
+        return SIZE_BUCKETS.clone();
+    }
+
+    static int sizeBucket(long size) {
+        int bucket = 0;
+        while ( size > SIZE_BUCKETS[bucket] ) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    static int latencyBucket(long nanos) {
+        return Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+}
@@ -0,0 +1,257 @@
+package com.chipmandal.encoding;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decorator that counts calls, bytes in and out, failures and latency by payload size for any
+ * BaseEncoding. Thread safe, the counters are LongAdders. Starts disabled unless the constructor
+ * says otherwise. While disabled every call goes straight to the delegate after a single volatile
+ * read, so it can stay in place and be switched on when needed, e.g. through JMX. Code that never wraps its encoding pays
+ * nothing at all.
+ */
+public final class InstrumentedEncoding implements BaseEncoding, InstrumentedEncodingMXBean {
+
+    private final BaseEncoding delegate;
+    private final OperationMetrics encode = new OperationMetrics();
+    private final OperationMetrics decode = new OperationMetrics();
+    private volatile boolean enabled;
+
+    /**
+     * Wraps delegate with instrumentation switched off, see setEnabled.
+     */
+    public InstrumentedEncoding(BaseEncoding delegate) {
+        this(delegate, false);
+    }
+
+    public InstrumentedEncoding(BaseEncoding delegate, boolean enabled) {
+        this.delegate = delegate;
+        this.enabled = enabled;
+    }
+
+    public BaseEncoding getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public EncodingStats encodeStats() {
+        return encode.snapshot();
+    }
+
+    public EncodingStats decodeStats() {
+        return decode.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        encode.reset();
+        decode.reset();
+    }
+
+    /**
+     * Registers this instance with the platform MBean server as
+     * com.chipmandal.encoding:type=InstrumentedEncoding,name=name.
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.chipmandal.encoding:type=InstrumentedEncoding,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getEncodeCalls() {
+        return encode.calls();
+    }
+
+    @Override
+    public long getEncodeFailures() {
+        return encode.failures();
+    }
+
+    @Override
+    public long getEncodeBytesIn() {
+        return encode.bytesIn();
+    }
+
+    @Override
+    public long getEncodeBytesOut() {
+        return encode.bytesOut();
+    }
+
+    @Override
+    public long getDecodeCalls() {
+        return decode.calls();
+    }
+
+    @Override
+    public long getDecodeFailures() {
+        return decode.failures();
+    }
+
+    @Override
+    public long getDecodeBytesIn() {
+        return decode.bytesIn();
+    }
+
+    @Override
+    public long getDecodeBytesOut() {
+        return decode.bytesOut();
+    }
+
+    @Override
+    public Map<String, long[]> getEncodeLatencyHistograms() {
+        return encode.snapshot().getLatencyHistograms();
+    }
+
+    @Override
+    public Map<String, long[]> getDecodeLatencyHistograms() {
+        return decode.snapshot().getLatencyHistograms();
+    }
+
+    @Override
+    public byte[] encode(byte[] input) {
+        if ( !enabled ) {
+            return delegate.encode(input);
+        }
+        return timed(encode, length(input), () -> delegate.encode(input), output -> output.length);
+    }
+
+    @Override
+    public String encodeString(byte[] input) {
+        if ( !enabled ) {
+            return delegate.encodeString(input);
+        }
+        return timed(encode, length(input), () -> delegate.encodeString(input), String::length);
+    }
+
+    @Override
+    public byte[] encodeToAsciiBytes(byte[] input) {
+        if ( !enabled ) {
+            return delegate.encodeToAsciiBytes(input);
+        }
+        return timed(encode, length(input), () -> delegate.encodeToAsciiBytes(input), output -> output.length);
+    }
+
+    @Override
+    public int encodeInto(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        if ( !enabled ) {
+            return delegate.encodeInto(src, offset, length, dst, dstOffset);
+        }
+        return timed(encode, length, () -> delegate.encodeInto(src, offset, length, dst, dstOffset), Integer::intValue);
+    }
+
+    @Override
+    public int encodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        if ( !enabled ) {
+            return delegate.encodeInto(src, offset, length, dst, dstOffset);
+        }
+        return timed(encode, length, () -> delegate.encodeInto(src, offset, length, dst, dstOffset), Integer::intValue);
+    }
+
+    @Override
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        if ( !enabled ) {
+            return delegate.encode(src, dst);
+        }
+        return timed(encode, src.remaining(), () -> delegate.encode(src, dst), Integer::intValue);
+    }
+
+    @Override
+    public byte[] decode(byte[] input) {
+        if ( !enabled ) {
+            return delegate.decode(input);
+        }
+        return timed(decode, length(input), () -> delegate.decode(input), output -> output.length);
+    }
+
+    @Override
+    public byte[] decodeString(String input) {
+        if ( !enabled ) {
+            return delegate.decodeString(input);
+        }
+        return timed(decode, input == null ? 0 : input.length(), () -> delegate.decodeString(input), output -> output.length);
+    }
+
+    @Override
+    public byte[] decodeAscii(byte[] asciiChars) {
+        if ( !enabled ) {
+            return delegate.decodeAscii(asciiChars);
+        }
+        return timed(decode, length(asciiChars), () -> delegate.decodeAscii(asciiChars), output -> output.length);
+    }
+
+    @Override
+    public int decodeInto(CharSequence src, int offset, int length, byte[] dst, int dstOffset) {
+        if ( !enabled ) {
+            return delegate.decodeInto(src, offset, length, dst, dstOffset);
+        }
+        return timed(decode, length, () -> delegate.decodeInto(src, offset, length, dst, dstOffset), Integer::intValue);
+    }
+
+    @Override
+    public int decodeInto(char[] src, int offset, int length, byte[] dst, int dstOffset) {
+        if ( !enabled ) {
+            return delegate.decodeInto(src, offset, length, dst, dstOffset);
+        }
+        return timed(decode, length, () -> delegate.decodeInto(src, offset, length, dst, dstOffset), Integer::intValue);
+    }
+
+    @Override
+    public int decodeInto(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        if ( !enabled ) {
+            return delegate.decodeInto(src, offset, length, dst, dstOffset);
+        }
+        return timed(decode, length, () -> delegate.decodeInto(src, offset, length, dst, dstOffset), Integer::intValue);
+    }
+
+    @Override
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        if ( !enabled ) {
+            return delegate.decode(src, dst);
+        }
+        return timed(decode, src.remaining(), () -> delegate.decode(src, dst), Integer::intValue);
+    }
+
+    @Override
+    public int encodedLength(int inputBytes) {
+        return delegate.encodedLength(inputBytes);
+    }
+
+    @Override
+    public int maxDecodedLength(int inputChars) {
+        return delegate.maxDecodedLength(inputChars);
+    }
+
+    /**
+     * Runs call, recording in, the output length and the time taken in metrics, or a failure if it throws.
+     */
+    private static <T> T timed(OperationMetrics metrics, long in, Supplier<T> call, ToIntFunction<T> outLength) {
+        long start = System.nanoTime();
+        try {
+            T output = call.get();
+            metrics.record(in, outLength.applyAsInt(output), System.nanoTime() - start);
+            return output;
+        } catch (RuntimeException e) {
+            metrics.failed();
+            throw e;
+        }
+    }
+
+    private static int length(byte[] input) {
+        return input == null ? 0 : input.length;
+    }
+}
@@ -0,0 +1,38 @@
+package com.chipmandal.encoding;
+
+import java.util.Map;
+
+/**
+ * JMX view of an InstrumentedEncoding, see InstrumentedEncoding.registerMBean.
+ */
+public interface InstrumentedEncodingMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getEncodeCalls();
+
+    long getEncodeFailures();
+
+    long getEncodeBytesIn();
+
+    long getEncodeBytesOut();
+
+    long getDecodeCalls();
+
+    long getDecodeFailures();
+
+    long getDecodeBytesIn();
+
+    long getDecodeBytesOut();
+
+    /**
+     * Latency histogram per payload size bucket, see EncodingStats.getLatencyHistograms.
+     */
+    Map<String, long[]> getEncodeLatencyHistograms();
+
+    Map<String, long[]> getDecodeLatencyHistograms();
+
+    void reset();
+}
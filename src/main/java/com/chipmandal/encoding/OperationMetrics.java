@@ -0,0 +1,76 @@
+package com.chipmandal.encoding;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters for one kind of operation. LongAdder only spreads into cells when threads
+ * actually contend, so an idle or single threaded instance stays small.
+ */
+final class OperationMetrics {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder[][] latency = new LongAdder[EncodingStats.SIZE_BUCKET_COUNT][EncodingStats.LATENCY_BUCKETS];
+
+    OperationMetrics() {
+        for ( LongAdder[] bySize : latency ) {
+            for ( int i = 0; i < bySize.length; i++ ) {
+                bySize[i] = new LongAdder();
+            }
+        }
+    }
+
+    void record(long in, long out, long nanos) {
+        calls.increment();
+        bytesIn.add(in);
+        bytesOut.add(out);
+        latency[EncodingStats.sizeBucket(in)][EncodingStats.latencyBucket(nanos)].increment();
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    long bytesIn() {
+        return bytesIn.sum();
+    }
+
+    long bytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Not atomic across counters, calls running at the same time may be partly included.
+     */
+    EncodingStats snapshot() {
+        long[][] counts = new long[latency.length][EncodingStats.LATENCY_BUCKETS];
+        for ( int size = 0; size < latency.length; size++ ) {
+            for ( int i = 0; i < EncodingStats.LATENCY_BUCKETS; i++ ) {
+                counts[size][i] = latency[size][i].sum();
+            }
+        }
+        return new EncodingStats(calls.sum(), failures.sum(), bytesIn.sum(), bytesOut.sum(), counts);
+    }
+
+    void reset() {
+        calls.reset();
+        failures.reset();
+        bytesIn.reset();
+        bytesOut.reset();
+        for ( LongAdder[] bySize : latency ) {
+            for ( LongAdder adder : bySize ) {
+                adder.reset();
+            }
+        }
+    }
+}
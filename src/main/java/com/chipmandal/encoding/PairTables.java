@@ -0,0 +1,39 @@
+package com.chipmandal.encoding;
+
+/**
+ * Precomputed pair tables for Base94.Strategy.LOOKUP_TABLE.
+ *
+ * encode holds the two characters of every 13 bit value, at 2 * value and 2 * value + 1 (32 KB).
+ * decode holds the 13 bit value of every pair of 7 bit characters at (first << 7) | second,
+ * or -1 if either character is outside the alphabet or the pair is 8192 or more (32 KB).
+ *
+ * Built once per alphabet and shared by all instances using that alphabet, for up to
+ * Base94.CACHE_SIZE alphabets.
+ */
+final class PairTables {
+
+    private static final BoundedCache<String, PairTables> CACHE = new BoundedCache<>(Base94.CACHE_SIZE);
+
+    final char[] encode;
+    final short[] decode;
+
+    private PairTables(char[] alphabet, byte[] reverse) {
+        encode = new char[8192 * 2];
+        for ( int val = 0; val < 8192; val++ ) {
+            encode[2 * val] = alphabet[val / 94];
+            encode[2 * val + 1] = alphabet[val % 94];
+        }
+        decode = new short[128 * 128];
+        for ( int first = 0; first < 128; first++ ) {
+            for ( int second = 0; second < 128; second++ ) {
+                int val = reverse[first] * 94 + reverse[second];
+                boolean valid = reverse[first] >= 0 && reverse[second] >= 0 && val < 8192;
+                decode[(first << 7) | second] = valid ? (short) val : -1;
+            }
+        }
+    }
+
+    static PairTables forAlphabet(char[] alphabet, byte[] reverse) {
+        return CACHE.get(new String(alphabet), key -> new PairTables(alphabet, reverse));
+    }
+}
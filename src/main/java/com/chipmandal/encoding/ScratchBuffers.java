@@ -0,0 +1,157 @@
+package com.chipmandal.encoding;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Shared pool of temporary byte[] and char[] buffers for Base94 instances with pooled buffers.
+ *
+ * Buffers come in power of two size classes from 1 KB to 4 MB, anything larger is allocated and
+ * dropped as usual. Each class has a few slots, at most 2 M elements worth, so the pool is
+ * bounded whatever the number of threads. Slots hold their buffers directly, taking or returning
+ * one creates nothing. A class that has not been used for IDLE_NANOS is emptied by the next
+ * release that finds the sweep due, so the pool shrinks back after a burst.
+ *
+ * There is no ThreadLocal and no lock: a thread starts probing at a slot picked from its
+ * identity and takes or returns a buffer with one atomic swap. Virtual threads share the same
+ * slots instead of each holding their own arena.
+ */
+final class ScratchBuffers {
+
+    static final int MIN_CLASS = 10;
+    static final int MAX_CLASS = 22;
+
+    //Bytes (or chars) one size class may keep, at least one buffer
+    private static final int CLASS_BUDGET = 1 << 21;
+
+    static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final int STRIPES = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private static final Pool<byte[]> BYTES = new Pool<>(byte[]::new, array -> array.length);
+    private static final Pool<char[]> CHARS = new Pool<>(char[]::new, array -> array.length);
+
+    private ScratchBuffers() {
+    }
+
+    /**
+     * @return a byte array of at least length, only to be used until it is released
+     */
+    static byte[] bytes(int length) {
+        return BYTES.acquire(length);
+    }
+
+    static void release(byte[] buffer) {
+        BYTES.release(buffer);
+    }
+
+    /**
+     * @return a char array of at least length, only to be used until it is released
+     */
+    static char[] chars(int length) {
+        return CHARS.acquire(length);
+    }
+
+    static void release(char[] buffer) {
+        CHARS.release(buffer);
+    }
+
+    /**
+     * Empties the size classes not used since now - IDLE_NANOS.
+     */
+    static void evictIdle(long now) {
+        BYTES.evictIdle(now);
+        CHARS.evictIdle(now);
+    }
+
+    /**
+     * Size class of length, the smallest power of two that holds it but at least 1 << MIN_CLASS.
+     */
+    static int sizeClass(int length) {
+        return Math.max(MIN_CLASS, 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1));
+    }
+
+    private static final class Pool<T> {
+        private final IntFunction<T> factory;
+        private final ToIntFunction<T> lengthOf;
+        private final AtomicReferenceArray<T>[] classes;
+        //System.nanoTime of the last release into each class
+        private final AtomicLongArray lastUsed;
+        private volatile long nextSweep;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Pool(IntFunction<T> factory, ToIntFunction<T> lengthOf) {
+            this.factory = factory;
+            this.lengthOf = lengthOf;
+            classes = new AtomicReferenceArray[MAX_CLASS - MIN_CLASS + 1];
+            for ( int c = MIN_CLASS; c <= MAX_CLASS; c++ ) {
+                classes[c - MIN_CLASS] = new AtomicReferenceArray<>(Math.max(1, Math.min(STRIPES, CLASS_BUDGET >> c)));
+            }
+            lastUsed = new AtomicLongArray(classes.length);
+            nextSweep = System.nanoTime() + IDLE_NANOS;
+        }
+
+        T acquire(int length) {
+            int sizeClass = sizeClass(length);
+            if ( sizeClass > MAX_CLASS ) {
+                return factory.apply(length);
+            }
+            AtomicReferenceArray<T> slots = classes[sizeClass - MIN_CLASS];
+            int start = start(slots.length());
+            for ( int i = 0; i < slots.length(); i++ ) {
+                int slot = (start + i) & (slots.length() - 1);
+                if ( slots.get(slot) == null ) {
+                    continue;
+                }
+                T buffer = slots.getAndSet(slot, null);
+                if ( buffer != null ) {
+                    return buffer;
+                }
+            }
+            return factory.apply(1 << sizeClass);
+        }
+
+        /**
+         * Puts the buffer in a free slot of its class, or drops it if there is none.
+         */
+        void release(T buffer) {
+            int length = lengthOf.applyAsInt(buffer);
+            int sizeClass = sizeClass(length);
+            if ( sizeClass > MAX_CLASS || length != 1 << sizeClass ) {
+                return;
+            }
+            long now = System.nanoTime();
+            lastUsed.lazySet(sizeClass - MIN_CLASS, now);
+            if ( now - nextSweep >= 0 ) {
+                evictIdle(now);
+            }
+            AtomicReferenceArray<T> slots = classes[sizeClass - MIN_CLASS];
+            int start = start(slots.length());
+            for ( int i = 0; i < slots.length(); i++ ) {
+                int slot = (start + i) & (slots.length() - 1);
+                if ( slots.get(slot) == null && slots.compareAndSet(slot, null, buffer) ) {
+                    return;
+                }
+            }
+        }
+
+        void evictIdle(long now) {
+            nextSweep = now + IDLE_NANOS;
+            for ( int c = 0; c < classes.length; c++ ) {
+                if ( now - lastUsed.get(c) >= IDLE_NANOS ) {
+                    for ( int slot = 0; slot < classes[c].length(); slot++ ) {
+                        classes[c].set(slot, null);
+                    }
+                }
+            }
+        }
+
+        private static int start(int slots) {
+            int h = System.identityHashCode(Thread.currentThread());
+            return (h ^ (h >>> 16)) & (slots - 1);
+        }
+    }
+}
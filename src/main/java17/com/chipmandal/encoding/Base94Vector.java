@@ -0,0 +1,99 @@
+package com.chipmandal.encoding;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API encoder for Base94.Strategy.VECTOR, one 13 byte / 16 character block per step.
+ * Only compiled by the vector profile and only used by Base94 on JDK 17+ with
+ * --add-modules jdk.incubator.vector, when isSupported().
+ *
+ * Encode: one shuffle spreads the 13 bytes so that every 32 bit lane holds the 3 bytes its
+ * 13 bit group starts in, a per lane shift and mask give the 8 groups, the high digit is
+ * (val * 2789) >>> 18 as in Base94.div94, and the 16 digits go through the alphabet with
+ * 16 entry table lookups selected by the high nibble.
+ */
+final class Base94Vector implements BlockKernel {
+
+    private static final VectorSpecies<Byte> BYTES_128 = ByteVector.SPECIES_128;
+    private static final VectorSpecies<Byte> BYTES_256 = ByteVector.SPECIES_256;
+    private static final VectorSpecies<Short> SHORTS_128 = ShortVector.SPECIES_128;
+    private static final VectorSpecies<Integer> INTS_256 = IntVector.SPECIES_256;
+
+    //Group j starts at bit 13 * j, in byte (13 * j) / 8, and is shifted down by 11 - (13 * j) % 8
+    private static final VectorShuffle<Byte> SPREAD;
+    private static final IntVector SHIFTS = IntVector.fromArray(INTS_256, new int[]{11, 6, 9, 4, 7, 10, 5, 8}, 0);
+
+    static {
+        int[] spread = new int[32];
+        for ( int j = 0; j < 8; j++ ) {
+            int first = (13 * j) / 8;
+            //Little endian lanes: the first byte goes to bits 16 - 23
+            spread[4 * j] = first + 2;
+            spread[4 * j + 1] = first + 1;
+            spread[4 * j + 2] = first;
+            spread[4 * j + 3] = first;
+        }
+        SPREAD = VectorShuffle.fromArray(BYTES_256, spread, 0);
+    }
+
+    //alphabet[16 * k, 16 * k + 16) as vectors
+    private final ByteVector[] alphabetTables = new ByteVector[6];
+
+    /**
+     * False without 256 bit vectors, where the API runs in plain Java, far slower than the scalar kernels.
+     */
+    static boolean isSupported() {
+        return IntVector.SPECIES_PREFERRED.vectorBitSize() >= 256;
+    }
+
+    Base94Vector(char[] alphabet) {
+        for ( int k = 0; k < alphabetTables.length; k++ ) {
+            byte[] table = new byte[16];
+            for ( int n = 0; n < 16 && 16 * k + n < alphabet.length; n++ ) {
+                table[n] = (byte) alphabet[16 * k + n];
+            }
+            alphabetTables[k] = ByteVector.fromArray(BYTES_128, table, 0);
+        }
+    }
+
+    @Override
+    public int encodeBlocks(byte[] input, int offset, int blocks, byte[] output, int outPos) {
+        //A block is read as 32 bytes and written as 16
+        int readable = input.length - offset - 32;
+        int done = (readable < 0) ? 0 : Math.min(blocks, readable / 13 + 1);
+        for ( int b = 0; b < done; b++ ) {
+            ByteVector bytes = ByteVector.fromArray(BYTES_256, input, offset + 13 * b).rearrange(SPREAD);
+            IntVector groups = bytes.reinterpretAsInts()
+                    .lanewise(VectorOperators.LSHR, SHIFTS)
+                    .and(0x1FFF);
+            IntVector high = groups.mul(2789).lanewise(VectorOperators.LSHR, 18);
+            IntVector low = groups.sub(high.mul(94));
+            //high digit in the low byte, low digit in the next one: the characters in order
+            ByteVector digits = high.or(low.lanewise(VectorOperators.LSHL, 8))
+                    .convertShape(VectorOperators.I2S, SHORTS_128, 0)
+                    .reinterpretAsBytes();
+            lookup(digits, alphabetTables).intoArray(output, outPos + 16 * b);
+        }
+        return done;
+    }
+
+    /**
+     * tables[c >>> 4][c & 15] for every lane c.
+     */
+    private static ByteVector lookup(ByteVector indexes, ByteVector[] tables) {
+        ByteVector highNibble = indexes.lanewise(VectorOperators.LSHR, 4);
+        ByteVector lowNibble = indexes.and((byte) 0x0F);
+        ByteVector result = ByteVector.zero(BYTES_128);
+        for ( int k = 0; k < tables.length; k++ ) {
+            VectorMask<Byte> inTable = highNibble.compare(VectorOperators.EQ, (byte) k);
+            result = result.blend(lowNibble.selectFrom(tables[k]), inTable);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base85Test {
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Known Z85 and Ascii85 vectors")
+    public void knownVectors() {
+        byte[] hello = {(byte) 0x86, 0x4F, (byte) 0xD2, 0x6F, (byte) 0xB5, 0x59, (byte) 0xF7, 0x5B};
+        assertEquals("HelloWorld", Base85.Z85.encodeString(hello));
+        assertArrayEquals(hello, Base85.Z85.decodeString("HelloWorld"));
+
+        byte[] man = "Man is".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("9jqo^Bla", Base85.ASCII85.encodeString(Arrays.copyOf(man, 6)));
+        assertEquals("9jqo^", Base85.ASCII85.encodeString(Arrays.copyOf(man, 4)));
+        assertArrayEquals(man, Base85.ASCII85.decodeString("9jqo^Bla"));
+    }
+
+    @Test
+    @DisplayName("Random lengths round trip through every entry point")
+    public void roundTrip() {
+        for ( Base85 base85 : new Base85[]{Base85.Z85, Base85.ASCII85} ) {
+            for ( int length = 0; length < 300; length++) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                String encoded = base85.encodeString(bytes);
+                assertEquals(base85.encodedLength(length), encoded.length());
+                assertEquals(length, base85.maxDecodedLength(encoded.length()));
+                assertArrayEquals(bytes, base85.decodeString(encoded), "Failed for length " + length);
+                assertArrayEquals(bytes, base85.decodeAscii(base85.encodeToAsciiBytes(bytes)));
+
+                char[] chars = new char[encoded.length() + 3];
+                assertEquals(encoded.length(), base85.encodeInto(bytes, 0, length, chars, 3));
+                byte[] decoded = new byte[length + 2];
+                assertEquals(length, base85.decodeInto(chars, 3, encoded.length(), decoded, 2));
+                assertArrayEquals(bytes, Arrays.copyOfRange(decoded, 2, length + 2));
+
+                ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length());
+                base85.encode(ByteBuffer.wrap(bytes), direct);
+                direct.flip();
+                ByteBuffer out = ByteBuffer.allocate(length);
+                assertEquals(length, base85.decode(direct, out));
+                assertArrayEquals(bytes, out.array());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid input is reported with its offset")
+    public void invalidInput() {
+        String encoded = Base85.Z85.encodeString(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        DecodingException e = assertThrows(DecodingException.class,
+                () -> Base85.Z85.decodeString(encoded.substring(0, 6) + ' ' + encoded.substring(7)));
+        assertEquals(6, e.getOffset());
+        //Low byte of \u0130 is '0', it must not pass for it
+        e = assertThrows(DecodingException.class, () -> Base85.Z85.decodeString("0000\u0130"));
+        assertEquals(4, e.getOffset());
+        e = assertThrows(DecodingException.class, () -> Base85.Z85.decodeInto("xx0000\u0130", 2, 5, new byte[4], 0));
+        assertEquals(6, e.getOffset());
+        ByteBuffer direct = ByteBuffer.allocateDirect(10);
+        direct.put("00000 0000".getBytes(StandardCharsets.US_ASCII)).flip();
+        e = assertThrows(DecodingException.class, () -> Base85.Z85.decode(direct, ByteBuffer.allocateDirect(8)));
+        assertEquals(5, e.getOffset());
+        assertThrows(DecodingException.class, () -> Base85.Z85.decodeString("#####"));
+        assertThrows(DecodingException.class, () -> Base85.Z85.decodeString("000001"));
+        assertThrows(IllegalArgumentException.class, () -> new Base85("abc".toCharArray()));
+    }
+}
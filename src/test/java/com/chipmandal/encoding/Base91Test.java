@@ -0,0 +1,73 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base91Test {
+    static Base91 base91 = Base91.BASE91;
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Known basE91 vectors")
+    public void knownVectors() {
+        assertEquals("fPNKd", base91.encodeString("test".getBytes(StandardCharsets.US_ASCII)));
+        assertArrayEquals("test".getBytes(StandardCharsets.US_ASCII), base91.decodeString("fPNKd"));
+        assertEquals("", base91.encodeString(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Random lengths round trip and stay within the length bounds")
+    public void roundTrip() {
+        for ( int length = 0; length < 1000; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            if ( length % 3 == 0 ) {
+                //Runs of zeros take the 14 bit path
+                Arrays.fill(bytes, 0, length / 2, (byte) 0);
+            }
+            String encoded = base91.encodeString(bytes);
+            assertTrue(encoded.length() <= base91.encodedLength(length));
+            assertTrue(length <= base91.maxDecodedLength(encoded.length()));
+            assertArrayEquals(bytes, base91.decodeString(encoded), "Failed for length " + length);
+
+            byte[] decoded = new byte[base91.maxDecodedLength(encoded.length()) + 1];
+            int written = base91.decodeInto(encoded, 0, encoded.length(), decoded, 1);
+            assertArrayEquals(bytes, Arrays.copyOfRange(decoded, 1, 1 + written));
+
+            char[] chars = new char[base91.encodedLength(length) + 2];
+            assertEquals(encoded.length(), base91.encodeInto(bytes, 0, length, chars, 2));
+            assertEquals(encoded, new String(chars, 2, encoded.length()));
+            written = base91.decodeInto(chars, 2, encoded.length(), decoded, 0);
+            assertArrayEquals(bytes, Arrays.copyOf(decoded, written));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(base91.encodedLength(length));
+            ByteBuffer in = ByteBuffer.allocateDirect(length);
+            in.put(bytes).flip();
+            assertEquals(encoded.length(), base91.encode(in, direct));
+            direct.flip();
+            ByteBuffer out = ByteBuffer.allocateDirect(base91.maxDecodedLength(encoded.length()));
+            assertEquals(length, base91.decode(direct, out));
+            out.flip();
+            assertEquals(ByteBuffer.wrap(bytes), out);
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid input is reported with its offset")
+    public void invalidInput() {
+        DecodingException e = assertThrows(DecodingException.class, () -> base91.decodeString("fPN'd"));
+        assertEquals(3, e.getOffset());
+        e = assertThrows(DecodingException.class, () -> base91.decodeInto("xxfPNK\u0100", 2, 5, new byte[10], 0));
+        assertEquals(6, e.getOffset());
+        //Low byte of \u0141 is 'A', it must not pass for it
+        e = assertThrows(DecodingException.class, () -> base91.decodeInto(new char[]{'A', 'A', '\u0141'}, 0, 3, new byte[10], 0));
+        assertEquals(2, e.getOffset());
+    }
+}
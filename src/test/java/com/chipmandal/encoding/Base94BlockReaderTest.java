@@ -0,0 +1,46 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base94BlockReaderTest {
+    static Base94 base94 = BaseEncoding.Base94;
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Reader decodes ranges of an encoded file")
+    public void reader() throws IOException {
+        Path file = Files.createTempFile("base94", ".txt");
+        try {
+            for ( int length : new int[]{0, 1, 13, 14, 100, 4000}) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                Files.write(file, base94.encodeString(bytes).getBytes(StandardCharsets.US_ASCII));
+                try (Base94BlockReader reader = new Base94BlockReader(file)) {
+                    assertEquals(length, reader.length());
+                    for ( int n = 0; n < 200; n++) {
+                        int from = random.nextInt(length + 1);
+                        int count = random.nextInt(length - from + 1);
+                        assertArrayEquals(Arrays.copyOfRange(bytes, from, from + count), reader.read(from, count),
+                                "Failed for length " + length + " range " + from + " + " + count);
+                    }
+                    byte[] rest = new byte[50];
+                    int read = reader.read(Math.max(0, length - 10), rest, 0, rest.length);
+                    assertEquals(Math.min(10, length), read == -1 ? 0 : read);
+                    assertEquals(-1, reader.read(length, rest, 0, 1));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
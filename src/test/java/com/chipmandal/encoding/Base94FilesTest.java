@@ -0,0 +1,53 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base94FilesTest {
+    static Base94 base94 = BaseEncoding.Base94;
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Files encode and decode in small windows, single and multi threaded")
+    public void roundTrip() throws IOException {
+        Path input = Files.createTempFile("base94", ".bin");
+        Path encoded = Files.createTempFile("base94", ".txt");
+        Path decoded = Files.createTempFile("base94", ".out");
+        try {
+            int[] lengths = {0, 1, 12, 13, 14, 25, 26, 27, 3 * 13 * 4, 3 * 13 * 4 + 1, 5000, 12345};
+            for ( int length : lengths ) {
+                for ( int threads : new int[]{1, 4} ) {
+                    byte[] bytes = new byte[length];
+                    random.nextBytes(bytes);
+                    Files.write(input, bytes);
+                    //4 blocks per window to get many windows from small files
+                    long chars = Base94Files.encode(base94, input, encoded, threads, 4);
+                    String expected = base94.encodeString(bytes);
+                    assertEquals(expected.length(), chars);
+                    assertEquals(expected, new String(Files.readAllBytes(encoded), StandardCharsets.US_ASCII), "Failed for length " + length);
+
+                    assertEquals(length, Base94Files.decode(base94, encoded, decoded, threads, 4));
+                    assertArrayEquals(bytes, Files.readAllBytes(decoded), "Failed for length " + length);
+                }
+            }
+
+            byte[] chars = base94.encodeString(new byte[1000]).getBytes(StandardCharsets.US_ASCII);
+            chars[700] = ' ';
+            Files.write(encoded, chars);
+            DecodingException e = assertThrows(DecodingException.class, () -> Base94Files.decode(base94, encoded, decoded, 2, 4));
+            assertEquals(700, e.getOffset());
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(encoded);
+            Files.deleteIfExists(decoded);
+        }
+    }
+}
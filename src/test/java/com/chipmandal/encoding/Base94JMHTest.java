@@ -2,65 +2,137 @@ package com.chipmandal.encoding;
 
 import org.openjdk.jmh.annotations.*;
 
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Run through BenchmarkRunner (mvn -P benchmark test-compile exec:exec) to get -prof gc allocation
+ * numbers next to the timings. The defaults are one small, one medium and one large size in
+ * one mode, a few minutes in all; BenchmarkRunner -full adds the other sizes and modes.
+ */
 @State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
 public class Base94JMHTest {
     Base94 base94 = BaseEncoding.Base94;
+    Base94 base94Lookup = BaseEncoding.Base94.withStrategy(Base94.Strategy.LOOKUP_TABLE);
     Base64.Encoder base64 = Base64.getEncoder();
     Base64.Decoder base64Decoder = Base64.getDecoder();
+    Base85 z85 = Base85.Z85;
+    Base91 base91 = Base91.BASE91;
 
+    @Param({"64", "4096", "1048576"})
+    int size;
 
-    @State(Scope.Thread)
-    public static class ThreadState {
-        byte [] input = new byte[2000];
-        public static SecureRandom secureRandom ;
-        static {
-            try {
-                secureRandom = SecureRandom.getInstanceStrong();
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-            }
+    byte[] input;
+    //encodeString output
+    String encoded;
+    //encode output, the 5 + 8 bit halves read by decode and decode0
+    byte[] halves;
+    String base64Encoded;
 
-        }
-        {
-            secureRandom.nextBytes(input);
-        }
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = new byte[size];
+        new Random(size).nextBytes(input);
+        encoded = base94.encodeString(input);
+        halves = base94.encode(input);
+        base64Encoded = base64.encodeToString(input);
+    }
+
+    @Benchmark
+    public String measureEncode() {
+        return base94.encodeString(input);
+    }
+
+    @Benchmark
+    public byte[] measureDecode() {
+        return base94.decodeString(encoded);
+    }
+
+    @Benchmark
+    public byte[] measureEncodeDecode() {
+        return base94.decodeString(base94.encodeString(input));
+    }
+
+    @Benchmark
+    public byte[] measureEncodeHalves() {
+        return base94.encode(input);
+    }
+
+    @Benchmark
+    public byte[] measureDecodeHalves() {
+        return base94.decode(halves);
     }
 
+    @Benchmark
+    public byte[] measureLegacyEncodePrivate0() {
+        return base94.encodePrivate0(input);
+    }
 
     @Benchmark
-    @Warmup(iterations = 0, time = 1, timeUnit = TimeUnit.SECONDS)
-    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
-    @BenchmarkMode(Mode.SingleShotTime)
-    public String measureEncode(ThreadState threadState) {
-        return base94.encodeString(threadState.input);
+    public byte[] measureLegacyDecode0() {
+        return base94.decode0(halves);
     }
 
     @Benchmark
-    @Warmup(iterations = 0, time = 1, timeUnit = TimeUnit.SECONDS)
-    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
-    @BenchmarkMode(Mode.SingleShotTime)
-    public byte[] measureEncodeDecode(ThreadState threadState) {
-        return base94.decodeString(base94.encodeString(threadState.input));
+    public String measureEncodeLookup() {
+        return base94Lookup.encodeString(input);
     }
 
     @Benchmark
-    @Warmup(iterations = 0, time = 1, timeUnit = TimeUnit.SECONDS)
-    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
-    @BenchmarkMode(Mode.SingleShotTime)
-    public String measureEncodeBase64(ThreadState threadState) {
-        return base64.encodeToString(threadState.input);
+    public byte[] measureDecodeLookup() {
+        return base94Lookup.decodeString(encoded);
     }
 
     @Benchmark
-    @Warmup(iterations = 0, time = 1, timeUnit = TimeUnit.SECONDS)
-    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
-    @BenchmarkMode(Mode.SingleShotTime)
-    public byte[] measureEncodeDecodeBase64(ThreadState threadState) {
-        return base64Decoder.decode(base64.encodeToString(threadState.input));
+    public byte[] measureEncodeAscii(StrategyState state) {
+        return state.base94.encodeToAsciiBytes(input);
+    }
+
+    @Benchmark
+    public String measureEncodeBase64() {
+        return base64.encodeToString(input);
+    }
+
+    @Benchmark
+    public byte[] measureDecodeBase64() {
+        return base64Decoder.decode(base64Encoded);
+    }
+
+    @Benchmark
+    public byte[] measureEncodeDecodeBase64() {
+        return base64Decoder.decode(base64.encodeToString(input));
+    }
+
+    @Benchmark
+    public byte[] measureEncodeDecodeZ85() {
+        return z85.decodeString(z85.encodeString(input));
+    }
+
+    @Benchmark
+    public byte[] measureEncodeDecodeBase91() {
+        return base91.decodeString(base91.encodeString(input));
+    }
+
+    /**
+     * Every Base94 strategy on encodeToAsciiBytes, the path Strategy.VECTOR speeds up.
+     * BenchmarkRunner leaves VECTOR out when Base94.isVectorAvailable() is false.
+     */
+    @State(Scope.Benchmark)
+    public static class StrategyState {
+        @Param({"ARITHMETIC", "LOOKUP_TABLE", "VECTOR"})
+        Base94.Strategy strategy;
+
+        Base94 base94;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            base94 = BaseEncoding.Base94.withStrategy(strategy);
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base94StreamTest {
+    static Base94 base94 = BaseEncoding.Base94;
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Encoding through the stream in random sized writes matches encodeString")
+    public void outputStream() throws IOException {
+        for ( int length = 0; length < 3000; length += 1 + random.nextInt(40)) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            ByteArrayOutputStream sink = new ByteArrayOutputStream();
+            try (OutputStream out = base94.wrap(sink)) {
+                int pos = 0;
+                while ( pos < length ) {
+                    if ( random.nextInt(10) == 0 ) {
+                        out.write(bytes[pos++]);
+                        continue;
+                    }
+                    int n = Math.min(length - pos, random.nextInt(100));
+                    out.write(bytes, pos, n);
+                    pos += n;
+                }
+            }
+            assertEquals(base94.encodeString(bytes), new String(sink.toByteArray(), StandardCharsets.US_ASCII), "Failed for length " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("Decoding through the stream with short reads matches the input")
+    public void inputStream() throws IOException {
+        for ( int length = 0; length < 3000; length += 1 + random.nextInt(40)) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            byte[] encoded = base94.encodeString(bytes).getBytes(StandardCharsets.US_ASCII);
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            try (InputStream in = base94.wrap(new ShortReads(new ByteArrayInputStream(encoded)))) {
+                byte[] buffer = new byte[37];
+                int n;
+                while ( (n = in.read(buffer, 0, 1 + random.nextInt(buffer.length))) != -1 ) {
+                    decoded.write(buffer, 0, n);
+                    int b = in.read();
+                    if ( b == -1 ) {
+                        break;
+                    }
+                    decoded.write(b);
+                }
+            }
+            assertArrayEquals(bytes, decoded.toByteArray(), "Failed for length " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("Large payload round trips through both streams")
+    public void roundTrip() throws IOException {
+        byte[] bytes = new byte[1 << 20];
+        random.nextBytes(bytes);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = base94.wrap(sink)) {
+            out.write(bytes);
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        try (InputStream in = base94.wrap(new ByteArrayInputStream(sink.toByteArray()))) {
+            byte[] buffer = new byte[10000];
+            int n;
+            while ( (n = in.read(buffer)) != -1 ) {
+                decoded.write(buffer, 0, n);
+            }
+        }
+        assertArrayEquals(bytes, decoded.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Invalid characters are reported as IOException")
+    public void invalidInput() {
+        InputStream in = base94.wrap(new ByteArrayInputStream("ab cd".getBytes(StandardCharsets.US_ASCII)));
+        assertThrows(IOException.class, () -> in.read(new byte[10]));
+    }
+
+    @Test
+    @DisplayName("encodeTo gives encodeString for StringBuilder, Writer and other Appendables")
+    public void encodeTo() throws IOException {
+        for ( int length = 0; length < 30000; length += 1 + random.nextInt(1000)) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String expected = base94.encodeString(bytes);
+            StringBuilder builder = new StringBuilder("{\"blob\":\"");
+            base94.encodeTo(bytes, builder);
+            assertEquals("{\"blob\":\"" + expected, builder.toString());
+            StringWriter writer = new StringWriter();
+            base94.encodeTo(bytes, writer);
+            assertEquals(expected, writer.toString());
+            StringBuffer buffer = new StringBuffer();
+            base94.encodeTo(bytes, buffer);
+            assertEquals(expected, buffer.toString(), "Failed for length " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("encodeTo never hands out a buffer it reuses, also with pooled buffers")
+    public void encodeToKeepingAppendable() throws IOException {
+        byte[] bytes = new byte[100000];
+        random.nextBytes(bytes);
+        for ( Base94 encoding : new Base94[]{base94, base94.withPooledBuffers(true)} ) {
+            KeepingAppendable kept = new KeepingAppendable();
+            encoding.encodeTo(bytes, kept);
+            //Reuse the pool before looking at what was kept
+            encoding.encodeString(new byte[6656]);
+            assertEquals(base94.encodeString(bytes), kept.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("decodeFrom with short reads matches the input, errors carry the offset in the whole input")
+    public void decodeFrom() throws IOException {
+        for ( int length = 0; length < 30000; length += 1 + random.nextInt(1000)) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = base94.encodeString(bytes);
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            Reader in = random.nextBoolean() ? new StringReader(encoded) : new ShortReader(new StringReader(encoded));
+            assertEquals(length, base94.decodeFrom(in, decoded));
+            assertArrayEquals(bytes, decoded.toByteArray(), "Failed for length " + length);
+        }
+        byte[] bytes = new byte[20000];
+        random.nextBytes(bytes);
+        char[] corrupt = base94.encodeString(bytes).toCharArray();
+        int at = 15001;
+        corrupt[at] = ' ';
+        DecodingException e = assertThrows(DecodingException.class,
+                () -> base94.decodeFrom(new ShortReader(new CharArrayReader(corrupt)), new ByteArrayOutputStream()));
+        assertEquals(at, e.getOffset());
+        //Found in a later chunk, the error at the offset within the chunk is kept as the cause
+        assertTrue(e.getCause() instanceof DecodingException);
+        assertTrue(((DecodingException) e.getCause()).getOffset() < at);
+    }
+
+    /**
+     * Returns at most a few bytes per read, to exercise the state carried between reads.
+     */
+    static class ShortReads extends FilterInputStream {
+        ShortReads(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(5)));
+        }
+    }
+
+    /**
+     * Keeps the CharSequences appended instead of copying them.
+     */
+    static class KeepingAppendable implements Appendable {
+        private final List<CharSequence> parts = new ArrayList<>();
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            parts.add(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return append(csq.subSequence(start, end));
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return append(String.valueOf(c));
+        }
+
+        @Override
+        public String toString() {
+            return String.join("", parts);
+        }
+    }
+
+    /**
+     * Same as ShortReads, for characters.
+     */
+    static class ShortReader extends FilterReader {
+        ShortReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(50)));
+        }
+    }
+}
@@ -5,9 +5,20 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -93,4 +104,527 @@ class Base94Test {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Fused encoder gives the same output as the two pass encoder")
+    public void fusedEncodeMatchesTwoPass() {
+        for ( int length = 0; length < 300; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            assertEquals(base94.bytesToString(base94.encode(bytes)), base94.encodeString(bytes), "Failed for length " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("Fused decoder rejects characters outside the alphabet range")
+    public void decodeIllegalCharacter() {
+        String encoded = base94.encodeString(new byte[]{1, 2, 3, 4, 5});
+        assertThrows(IllegalArgumentException.class, () -> base94.decodeString(" " + encoded.substring(1)));
+        assertThrows(IllegalArgumentException.class, () -> base94.decodeString(encoded.substring(0, 3) + '\u00e9'));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, base94.decodeString(encoded));
+    }
+
+    @Test
+    @DisplayName("encodeInto and decodeInto work on caller supplied buffers at an offset")
+    public void intoCallerBuffers() {
+        for ( int length = 0; length < 200; length++) {
+            byte[] bytes = new byte[length + 7];
+            random.nextBytes(bytes);
+            String expected = base94.encodeString(Arrays.copyOfRange(bytes, 3, 3 + length));
+            int encodedLength = base94.encodedLength(length);
+            assertEquals(expected.length(), encodedLength);
+
+            char[] chars = new char[encodedLength + 5];
+            assertEquals(encodedLength, base94.encodeInto(bytes, 3, length, chars, 5));
+            assertEquals(expected, new String(chars, 5, encodedLength));
+
+            byte[] ascii = new byte[encodedLength + 2];
+            assertEquals(encodedLength, base94.encodeInto(bytes, 3, length, ascii, 2));
+            assertEquals(expected, new String(ascii, 2, encodedLength, StandardCharsets.US_ASCII));
+
+            int decodedLength = base94.maxDecodedLength(encodedLength);
+            assertEquals(length, decodedLength);
+            byte[] decoded = new byte[decodedLength + 3];
+            assertEquals(length, base94.decodeInto(chars, 5, encodedLength, decoded, 3));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 3, 3 + length), Arrays.copyOfRange(decoded, 3, 3 + length), "Failed for length " + length);
+            Arrays.fill(decoded, (byte) 0);
+            assertEquals(length, base94.decodeInto(ascii, 2, encodedLength, decoded, 3));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 3, 3 + length), Arrays.copyOfRange(decoded, 3, 3 + length), "Failed for length " + length);
+            Arrays.fill(decoded, (byte) 0);
+            assertEquals(length, base94.decodeInto(expected, 0, encodedLength, decoded, 3));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 3, 3 + length), Arrays.copyOfRange(decoded, 3, 3 + length), "Failed for length " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("encodeInto rejects an output buffer that is too small")
+    public void intoTooSmall() {
+        byte[] bytes = new byte[26];
+        assertThrows(IllegalArgumentException.class, () -> base94.encodeInto(bytes, 0, 26, new char[32], 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> base94.encodeInto(bytes, 1, 26, new char[64], 0));
+    }
+
+    @Test
+    @DisplayName("ByteBuffer encode and decode on heap and direct buffers")
+    public void byteBuffers() {
+        for ( int length = 0; length < 100; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            byte[] expected = base94.encodeString(bytes).getBytes(StandardCharsets.US_ASCII);
+            for ( boolean direct : new boolean[]{false, true}) {
+                ByteBuffer src = direct ? ByteBuffer.allocateDirect(length + 4) : ByteBuffer.allocate(length + 4);
+                //Byte order of the buffer must not matter
+                src.order(direct ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+                src.position(2);
+                src.put(bytes);
+                src.flip().position(2);
+                //Mix heap and direct buffers on odd lengths
+                boolean encodedDirect = (length % 2 == 0) == direct;
+                ByteBuffer encoded = encodedDirect ? ByteBuffer.allocateDirect(expected.length + 3) : ByteBuffer.allocate(expected.length + 3);
+                encoded.position(3);
+                assertEquals(expected.length, base94.encode(src, encoded));
+                assertFalse(src.hasRemaining());
+                encoded.flip().position(3);
+                byte[] actual = new byte[expected.length];
+                encoded.duplicate().get(actual);
+                assertArrayEquals(expected, actual, "Failed for length " + length);
+
+                ByteBuffer decoded = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+                assertEquals(length, base94.decode(encoded, decoded));
+                decoded.flip();
+                byte[] roundTrip = new byte[length];
+                decoded.get(roundTrip);
+                assertArrayEquals(bytes, roundTrip, "Failed for length " + length);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Incremental encoder and decoder give the same output as the one shot methods")
+    public void incrementalEncoderDecoder() {
+        Base94.Encoder encoder = base94.newEncoder();
+        Base94.Decoder decoder = base94.newDecoder();
+        for ( int length = 0; length < 500; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String expected = base94.encodeString(bytes);
+
+            StringBuilder encoded = new StringBuilder();
+            for ( int pos = 0; pos < length; ) {
+                int n = Math.min(length - pos, random.nextInt(30));
+                encoded.append(encoder.update(Arrays.copyOfRange(bytes, pos, pos + n)));
+                pos += n;
+            }
+            encoded.append(encoder.finish());
+            assertEquals(expected, encoded.toString(), "Failed for length " + length);
+
+            byte[] decoded = new byte[length];
+            int written = 0;
+            for ( int pos = 0; pos < expected.length(); ) {
+                int n = Math.min(expected.length() - pos, random.nextInt(40));
+                written += decoder.update(expected, pos, n, decoded, written);
+                pos += n;
+            }
+            written += decoder.finish(decoded, written);
+            assertEquals(length, written);
+            assertArrayEquals(bytes, decoded, "Failed for length " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("Reset drops pending input")
+    public void incrementalReset() {
+        Base94.Encoder encoder = base94.newEncoder();
+        encoder.update(new byte[]{1, 2, 3});
+        encoder.reset();
+        assertEquals("", encoder.finish());
+        assertEquals(base94.encodeString(new byte[]{4, 5}), encoder.update(new byte[]{4, 5}) + encoder.finish());
+
+        Base94.Decoder decoder = base94.newDecoder();
+        decoder.update("abc");
+        decoder.reset();
+        assertEquals(0, decoder.update(base94.encodeString(new byte[]{4, 5})).length);
+        assertArrayEquals(new byte[]{4, 5}, decoder.finish());
+    }
+
+    @Test
+    @DisplayName("Parallel encode and decode match the sequential methods")
+    public void parallelEncodeDecode() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for ( int length = 0; length < 3000; length += 1 + random.nextInt(50)) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                String expected = base94.encodeString(bytes);
+                String encoded = base94.encodeParallel(bytes, pool, 1 + random.nextInt(100));
+                assertEquals(expected, encoded, "Failed for length " + length);
+                assertArrayEquals(bytes, base94.decodeParallel(encoded, pool, 1 + random.nextInt(100)), "Failed for length " + length);
+            }
+            byte[] large = new byte[1 << 22];
+            random.nextBytes(large);
+            String encoded = base94.encodeParallel(large);
+            assertEquals(base94.encodeString(large), encoded);
+            assertArrayEquals(large, base94.decodeParallel(encoded));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Lookup table strategy gives the same output as arithmetic")
+    public void lookupTableStrategy() {
+        Base94 lookup = base94.withStrategy(Base94.Strategy.LOOKUP_TABLE);
+        assertEquals(Base94.Strategy.LOOKUP_TABLE, lookup.getStrategy());
+        for ( int length = 0; length < 500; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = lookup.encodeString(bytes);
+            assertEquals(base94.encodeString(bytes), encoded, "Failed for length " + length);
+            assertArrayEquals(bytes, lookup.decodeString(encoded), "Failed for length " + length);
+        }
+        assertThrows(IllegalArgumentException.class, () -> lookup.decodeString("ab\u0100d"));
+        assertThrows(IllegalArgumentException.class, () -> lookup.decodeString("a bc"));
+    }
+
+    @Test
+    @DisplayName("Vector strategy gives the same output and errors as arithmetic, with or without the vector kernels")
+    public void vectorStrategy() {
+        Base94 vector = base94.withStrategy(Base94.Strategy.VECTOR);
+        assertEquals(Base94.Strategy.VECTOR, vector.getStrategy());
+        for ( int length = 0; length < 500; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            byte[] ascii = vector.encodeToAsciiBytes(bytes);
+            assertArrayEquals(base94.encodeToAsciiBytes(bytes), ascii, "Failed for length " + length);
+            assertArrayEquals(bytes, vector.decodeAscii(ascii), "Failed for length " + length);
+        }
+        //Groups at both ends of the 13 bit range
+        byte[] ones = new byte[130];
+        Arrays.fill(ones, (byte) 0xFF);
+        assertArrayEquals(base94.encodeToAsciiBytes(ones), vector.encodeToAsciiBytes(ones));
+        assertArrayEquals(ones, vector.decodeAscii(vector.encodeToAsciiBytes(ones)));
+        assertArrayEquals(base94.encodeToAsciiBytes(new byte[130]), vector.encodeToAsciiBytes(new byte[130]));
+
+        byte[] ascii = vector.encodeToAsciiBytes(new byte[200]);
+        char last = BaseEncoding.standardAlphabet[93];
+        for ( int at : new int[]{0, 17, 100, 150} ) {
+            for ( byte bad : new byte[]{' ', (byte) 0xE9, 0x7F, (byte) last} ) {
+                byte[] broken = ascii.clone();
+                broken[at] = bad;
+                broken[at + 1] = bad;
+                DecodingException expected = assertThrows(DecodingException.class, () -> base94.decodeAscii(broken));
+                DecodingException e = assertThrows(DecodingException.class, () -> vector.decodeAscii(broken));
+                assertEquals(expected.getMessage(), e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Multiply and shift division by 94 is exact for every 13 bit value")
+    public void div94() {
+        for ( int val = 0; val < 8192; val++) {
+            assertEquals(val / 94, Base94.div94(val), "Failed for " + val);
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid input is reported with the offset of the offending character or pair")
+    public void decodingExceptionOffsets() {
+        byte[] bytes = new byte[100];
+        random.nextBytes(bytes);
+        String encoded = base94.encodeString(bytes);
+        char last = BaseEncoding.standardAlphabet[93];
+        for ( Base94 decoder : new Base94[]{base94, base94.withStrategy(Base94.Strategy.LOOKUP_TABLE)} ) {
+            for ( int offset = 0; offset < encoded.length(); offset++ ) {
+                for ( char bad : new char[]{' ', '\u00e9', '\u0100', '\u7fff'} ) {
+                    String broken = encoded.substring(0, offset) + bad + encoded.substring(offset + 1);
+                    DecodingException e = assertThrows(DecodingException.class, () -> decoder.decodeString(broken));
+                    assertEquals(offset, e.getOffset());
+                    assertFalse(decoder.isValid(broken));
+                }
+            }
+            //Two valid characters whose pair value does not fit 13 bits
+            for ( int offset = 0; offset + 1 < encoded.length(); offset += 2 ) {
+                String broken = encoded.substring(0, offset) + last + last + encoded.substring(offset + 2);
+                DecodingException e = assertThrows(DecodingException.class, () -> decoder.decodeString(broken));
+                assertEquals(offset, e.getOffset());
+                assertFalse(decoder.isValid(broken));
+            }
+            assertTrue(decoder.isValid(encoded));
+            assertTrue(decoder.isValid(""));
+        }
+    }
+
+    @Test
+    @DisplayName("ASCII byte output matches the String output and decodes back")
+    public void asciiBytes() {
+        for ( int length = 0; length < 500; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            byte[] ascii = base94.encodeToAsciiBytes(bytes);
+            assertEquals(base94.encodeString(bytes), new String(ascii, StandardCharsets.US_ASCII), "Failed for length " + length);
+            assertArrayEquals(bytes, base94.decodeAscii(ascii), "Failed for length " + length);
+        }
+        DecodingException e = assertThrows(DecodingException.class, () -> base94.decodeAscii(new byte[]{'a', 'b', (byte) 0xE9}));
+        assertEquals(2, e.getOffset());
+    }
+
+    @Test
+    @DisplayName("Fixed width long, int and UUID encoders match encodeString of the big endian bytes")
+    public void fixedWidthPrimitives() {
+        assertEquals(Integer.MAX_VALUE / 10 * 10, Base94.longsLength(Integer.MAX_VALUE / 10));
+        assertThrows(IllegalArgumentException.class, () -> Base94.longsLength(Integer.MAX_VALUE / 10 + 1));
+        long[] longs = new long[1000];
+        for ( int n = 0; n < longs.length; n++) {
+            long value = (n < 4) ? new long[]{0, -1, Long.MIN_VALUE, Long.MAX_VALUE}[n] : random.nextLong();
+            longs[n] = value;
+            String encoded = base94.encodeLong(value);
+            assertEquals(base94.encodeString(ByteBuffer.allocate(8).putLong(value).array()), encoded);
+            assertEquals(value, base94.decodeLong(encoded));
+
+            int intValue = (int) value;
+            String encodedInt = base94.encodeInt(intValue);
+            assertEquals(base94.encodeString(ByteBuffer.allocate(4).putInt(intValue).array()), encodedInt);
+            assertEquals(intValue, base94.decodeInt(encodedInt));
+
+            UUID uuid = new UUID(value, random.nextLong());
+            String encodedUuid = base94.encodeUuid(uuid);
+            byte[] uuidBytes = ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+            assertEquals(base94.encodeString(uuidBytes), encodedUuid);
+            assertEquals(uuid, base94.decodeUuid(encodedUuid));
+        }
+        char[] packed = new char[longs.length * Base94.LONG_CHARS];
+        assertEquals(packed.length, base94.encodeLongs(longs, packed));
+        long[] decoded = new long[longs.length];
+        base94.decodeLongs(packed, decoded);
+        assertArrayEquals(longs, decoded);
+
+        assertThrows(IllegalArgumentException.class, () -> base94.decodeLong("abc"));
+        DecodingException e = assertThrows(DecodingException.class, () -> base94.decodeUuid("0123456789 123456789"));
+        assertEquals(10, e.getOffset());
+    }
+
+    @Test
+    @DisplayName("Ordered alphabet keeps the unsigned byte order of equal length inputs")
+    public void orderPreserving() {
+        Base94 ordered = BaseEncoding.Base94Ordered;
+        assertTrue(ordered.isOrderPreserving());
+        assertFalse(base94.isOrderPreserving());
+        for ( int n = 0; n < 20000; n++) {
+            int length = 1 + random.nextInt(40);
+            byte[] a = new byte[length];
+            byte[] b = new byte[length];
+            random.nextBytes(a);
+            if ( random.nextBoolean() ) {
+                //Differ only from a random position on, to hit every group and the tail
+                System.arraycopy(a, 0, b, 0, length);
+                int from = random.nextInt(length);
+                for ( int i = from; i < length; i++) {
+                    b[i] = (byte) random.nextInt(random.nextBoolean() ? 2 : 256);
+                }
+            } else {
+                random.nextBytes(b);
+            }
+            String encodedA = ordered.encodeString(a);
+            String encodedB = ordered.encodeString(b);
+            assertEquals(Integer.signum(compareUnsigned(a, b)), Integer.signum(encodedA.compareTo(encodedB)),
+                    "Failed for " + Arrays.toString(a) + " and " + Arrays.toString(b));
+            assertArrayEquals(a, ordered.decodeString(encodedA));
+        }
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for ( int i = 0; i < a.length; i++) {
+            int c = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if ( c != 0 ) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    @DisplayName("Batch encode and decode match encodeString per message")
+    public void batch() {
+        byte[][] messages = new byte[3000][];
+        for ( int i = 0; i < messages.length; i++) {
+            messages[i] = new byte[(i % 50 == 0) ? 0 : 20 + random.nextInt(180)];
+            random.nextBytes(messages[i]);
+        }
+        Base94.Batch encoded = base94.encodeBatch(messages);
+        assertEquals(messages.length, encoded.size());
+        for ( int i = 0; i < messages.length; i++) {
+            assertEquals(base94.encodeString(messages[i]), encoded.getString(i), "Failed for message " + i);
+        }
+        Base94.Batch decoded = base94.decodeBatch(encoded);
+        for ( int i = 0; i < messages.length; i++) {
+            assertArrayEquals(messages[i], decoded.get(i), "Failed for message " + i);
+        }
+        //Packed input gives the same packed output
+        Base94.Batch again = base94.encodeBatch(decoded);
+        assertArrayEquals(encoded.data(), again.data());
+        assertArrayEquals(encoded.offsets(), again.offsets());
+
+        byte[] data = encoded.data().clone();
+        data[encoded.offset(7) + 3] = ' ';
+        DecodingException e = assertThrows(DecodingException.class, () -> base94.decodeBatch(new Base94.Batch(data, encoded.offsets())));
+        assertEquals(encoded.offset(7) + 3, e.getOffset());
+        assertThrows(IllegalArgumentException.class, () -> new Base94.Batch(new byte[4], new int[]{0, 3, 2}));
+    }
+
+    @Test
+    @DisplayName("forAlphabet returns one shared instance per alphabet and strategy, in a bounded cache")
+    public void forAlphabet() {
+        char[] alphabet = BaseEncoding.orderedAlphabet.clone();
+        Base94 first = Base94.forAlphabet(alphabet);
+        alphabet[0] = '~';
+        assertSame(first, Base94.forAlphabet(BaseEncoding.orderedAlphabet));
+        assertTrue(first.isOrderPreserving());
+
+        Base94 lookup = Base94.forAlphabet(BaseEncoding.orderedAlphabet, Base94.Strategy.LOOKUP_TABLE);
+        assertEquals(Base94.Strategy.LOOKUP_TABLE, lookup.getStrategy());
+        assertSame(lookup, Base94.forAlphabet(BaseEncoding.orderedAlphabet, Base94.Strategy.LOOKUP_TABLE));
+        assertSame(first, Base94.forAlphabet(BaseEncoding.orderedAlphabet, Base94.Strategy.ARITHMETIC));
+
+        byte[] bytes = new byte[100];
+        random.nextBytes(bytes);
+        assertEquals(BaseEncoding.Base94Ordered.encodeString(bytes), lookup.encodeString(bytes));
+
+        //Many rotations of the standard alphabet, the cache stays bounded
+        for ( int n = 0; n < 3 * Base94.CACHE_SIZE; n++) {
+            char[] rotated = new char[94];
+            for ( int i = 0; i < 94; i++) {
+                rotated[i] = BaseEncoding.standardAlphabet[(i + n) % 94];
+            }
+            Base94 rotatedBase94 = Base94.forAlphabet(rotated, Base94.Strategy.LOOKUP_TABLE);
+            assertArrayEquals(bytes, rotatedBase94.decodeString(rotatedBase94.encodeString(bytes)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> Base94.forAlphabet("abc".toCharArray()));
+    }
+
+    @Test
+    @DisplayName("decodeRange matches the same range of decodeString, including the tail")
+    public void decodeRange() {
+        for ( int length = 0; length < 200; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = base94.encodeString(bytes);
+            for ( int from = 0; from <= length; from++) {
+                for ( int count = 0; from + count <= length; count += 1 + random.nextInt(7)) {
+                    assertArrayEquals(Arrays.copyOfRange(bytes, from, from + count), base94.decodeRange(encoded, from, count),
+                            "Failed for length " + length + " range " + from + " + " + count);
+                }
+            }
+            int end = length;
+            assertThrows(IndexOutOfBoundsException.class, () -> base94.decodeRange(encoded, end, 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Framed payloads round trip, alone and concatenated, and match a plain encode of the frame")
+    public void framed() {
+        StringBuilder concatenated = new StringBuilder();
+        List<byte[]> payloads = new ArrayList<>();
+        for ( int length = 0; length < 10000; length += 1 + random.nextInt(300)) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String framed = base94.encodeFramed(bytes);
+            Crc32c crc = new Crc32c();
+            crc.update(bytes, 0, length);
+            ByteBuffer frame = ByteBuffer.allocate(length + Base94.FRAME_OVERHEAD);
+            frame.putInt(length).put(bytes).putInt((int) crc.getValue());
+            assertEquals(base94.encodeString(frame.array()), framed, "Failed for length " + length);
+            assertArrayEquals(bytes, base94.decodeFramed(framed), "Failed for length " + length);
+            concatenated.append(framed);
+            payloads.add(bytes);
+        }
+        List<byte[]> decoded = base94.decodeFrames(concatenated);
+        assertEquals(payloads.size(), decoded.size());
+        for ( int i = 0; i < payloads.size(); i++ ) {
+            assertArrayEquals(payloads.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupt frames are reported at the offset of the frame")
+    public void framedErrors() {
+        byte[] first = new byte[100];
+        byte[] second = new byte[5000];
+        random.nextBytes(first);
+        random.nextBytes(second);
+        String frame1 = base94.encodeFramed(first);
+        String frame2 = base94.encodeFramed(second);
+
+        //Change one payload character of the second frame to another valid one
+        char[] corrupt = frame2.toCharArray();
+        int at = 1000;
+        corrupt[at] = corrupt[at] == '0' ? '1' : '0';
+        DecodingException e = assertThrows(DecodingException.class, () -> base94.decodeFrames(frame1 + new String(corrupt)));
+        assertEquals(frame1.length(), e.getOffset());
+        assertTrue(e.getMessage().contains("checksum"));
+
+        //Invalid characters keep their own offset
+        corrupt[at] = ' ';
+        e = assertThrows(DecodingException.class, () -> base94.decodeFrames(frame1 + new String(corrupt)));
+        assertEquals(frame1.length() + at, e.getOffset());
+
+        e = assertThrows(DecodingException.class, () -> base94.decodeFrames(frame1 + frame2.substring(0, frame2.length() - 1)));
+        assertEquals(frame1.length(), e.getOffset());
+        e = assertThrows(DecodingException.class, () -> base94.decodeFramed(frame1 + frame2));
+        assertEquals(frame1.length(), e.getOffset());
+        assertThrows(DecodingException.class, () -> base94.decodeFramed(""));
+
+        //A length prefix too large to encode at all is still a truncated frame
+        byte[] header = new byte[Base94.FRAME_OVERHEAD + 16];
+        header[0] = 0x7F;
+        header[1] = (byte) 0xFF;
+        String huge = base94.encodeString(header);
+        e = assertThrows(DecodingException.class, () -> base94.decodeFrames(huge));
+        assertEquals(0, e.getOffset());
+        assertTrue(e.getMessage().contains("Truncated"));
+        e = assertThrows(DecodingException.class, () -> base94.decodeFrames(frame1 + huge));
+        assertEquals(frame1.length(), e.getOffset());
+    }
+
+    @Test
+    @DisplayName("Pooled buffers give the same results, also with many threads at once")
+    public void pooledBuffers() throws Exception {
+        Base94 pooled = base94.withPooledBuffers(true);
+        assertTrue(pooled.hasPooledBuffers());
+        assertSame(pooled, pooled.withPooledBuffers(true));
+        assertFalse(pooled.withPooledBuffers(false).hasPooledBuffers());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int t = 0; t < 16; t++ ) {
+                futures.add(executor.submit(() -> {
+                    Random random = new Random();
+                    for ( int i = 0; i < 200; i++ ) {
+                        byte[] bytes = new byte[random.nextInt(20000)];
+                        random.nextBytes(bytes);
+                        String expected = base94.encodeString(bytes);
+                        assertEquals(expected, pooled.encodeString(bytes));
+                        StringBuilder builder = new StringBuilder();
+                        pooled.encodeTo(bytes, builder);
+                        assertEquals(expected, builder.toString());
+                        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+                        pooled.decodeFrom(new StringReader(expected), decoded);
+                        assertArrayEquals(bytes, decoded.toByteArray());
+                        int from = random.nextInt(bytes.length + 1);
+                        int count = random.nextInt(bytes.length - from + 1);
+                        assertArrayEquals(Arrays.copyOfRange(bytes, from, from + count), pooled.decodeRange(expected, from, count));
+                        String framed = pooled.encodeFramed(bytes);
+                        assertEquals(base94.encodeFramed(bytes), framed);
+                        assertArrayEquals(bytes, pooled.decodeFramed(framed));
+                    }
+                    return null;
+                }));
+            }
+            for ( Future<?> future : futures ) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.chipmandal.encoding;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler, so every result comes with bytes allocated per
+ * operation, and writes the results as JSON to target/jmh-result.json.
+ * Takes the usual JMH command line, e.g. "Base94JMHTest.measureDecode -p size=4096 -bm thrpt",
+ * and like org.openjdk.jmh.Main only prints for -h, -l, -lp, -lprof and -lrf.
+ * Without a benchmark pattern every benchmark in Base94JMHTest runs (or is listed).
+ * -full runs the whole matrix, FULL_SIZES in both modes, for any -p size or -bm not given.
+ * Strategy.VECTOR is skipped unless Base94.isVectorAvailable(): build with -P vector, which also
+ * starts this JVM, and so the forks, with the incubator module.
+ */
+public class BenchmarkRunner {
+
+    static final String FULL = "-full";
+    static final String[] FULL_SIZES = {"16", "256", "4096", "65536", "1048576", "16777216"};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        boolean full = Arrays.asList(args).contains(FULL);
+        CommandLineOptions commandLine = new CommandLineOptions(Arrays.stream(args)
+                .filter(arg -> !FULL.equals(arg))
+                .toArray(String[]::new));
+        OptionsBuilder builder = new OptionsBuilder();
+        if ( commandLine.getIncludes().isEmpty() ) {
+            builder.include(Base94JMHTest.class.getSimpleName());
+        }
+        if ( full ) {
+            if ( !commandLine.getParameter("size").hasValue() ) {
+                builder.param("size", FULL_SIZES);
+            }
+            if ( commandLine.getBenchModes().isEmpty() ) {
+                builder.mode(Mode.Throughput).mode(Mode.AverageTime);
+            }
+        }
+        if ( !Base94.isVectorAvailable() && !commandLine.getParameter("strategy").hasValue() ) {
+            builder.param("strategy", Arrays.stream(Base94.Strategy.values())
+                    .filter(strategy -> strategy != Base94.Strategy.VECTOR)
+                    .map(Enum::name)
+                    .toArray(String[]::new));
+        }
+        Options options = builder
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        Runner runner = new Runner(options);
+        if ( commandLine.shouldHelp() ) {
+            commandLine.showHelp();
+        } else if ( commandLine.shouldList() ) {
+            runner.list();
+        } else if ( commandLine.shouldListWithParams() ) {
+            runner.listWithParams(commandLine);
+        } else if ( commandLine.shouldListProfilers() ) {
+            commandLine.listProfilers();
+        } else if ( commandLine.shouldListResultFormats() ) {
+            commandLine.listResultFormats();
+        } else {
+            runner.run();
+        }
+    }
+}
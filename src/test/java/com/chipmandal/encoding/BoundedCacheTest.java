@@ -0,0 +1,21 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    @Test
+    @DisplayName("Values are built once per key and the size never goes over the bound")
+    public void bounded() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(8);
+        String first = cache.get(1, String::valueOf);
+        assertSame(first, cache.get(1, key -> "rebuilt"));
+        for ( int key = 0; key < 100; key++) {
+            assertEquals(String.valueOf(key), cache.get(key, String::valueOf));
+            assertTrue(cache.size() <= 8);
+        }
+    }
+}
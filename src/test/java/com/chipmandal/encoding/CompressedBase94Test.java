@@ -0,0 +1,66 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedBase94Test {
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Compressible text comes out smaller than plain encoding and round trips")
+    public void compressible() {
+        StringBuilder json = new StringBuilder();
+        for ( int i = 0; i < 2000; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i % 17).append("\",\"ok\":true}\n");
+        }
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        String encoded = CompressedBase94.encodeString(bytes);
+        assertTrue(encoded.length() * 4 < BaseEncoding.Base94.encodeString(bytes).length());
+        assertArrayEquals(bytes, CompressedBase94.decodeString(encoded));
+    }
+
+    @Test
+    @DisplayName("Random data of many sizes round trips with both codecs through the streams")
+    public void streams() throws IOException {
+        for ( CompressedBase94.Codec codec : CompressedBase94.Codec.values() ) {
+            for ( int length = 0; length < 100000; length = length * 3 + 1) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                ByteArrayOutputStream sink = new ByteArrayOutputStream();
+                try (OutputStream out = CompressedBase94.encoder(BaseEncoding.Base94, sink, codec, Deflater.BEST_SPEED)) {
+                    out.write(bytes);
+                }
+                ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+                try (InputStream in = CompressedBase94.decoder(new ByteArrayInputStream(sink.toByteArray()))) {
+                    byte[] buffer = new byte[1000];
+                    int n;
+                    while ( (n = in.read(buffer)) != -1 ) {
+                        decoded.write(buffer, 0, n);
+                    }
+                }
+                assertArrayEquals(bytes, decoded.toByteArray(), "Failed for " + codec + " length " + length);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Input without the header or with a broken payload is rejected")
+    public void invalidInput() {
+        String plain = BaseEncoding.Base94.encodeString(new byte[]{1, 2, 3, 4});
+        assertThrows(IllegalArgumentException.class, () -> CompressedBase94.decodeString(plain));
+        String encoded = CompressedBase94.encodeString(new byte[1000]);
+        assertThrows(IllegalArgumentException.class, () -> CompressedBase94.decodeString(encoded.substring(0, 5) + '\u00e9' + encoded.substring(6)));
+        assertThrows(IllegalArgumentException.class, () -> CompressedBase94.decodeString(""));
+    }
+}
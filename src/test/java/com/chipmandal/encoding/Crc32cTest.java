@@ -0,0 +1,47 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Crc32cTest {
+
+    @Test
+    @DisplayName("Known CRC-32C check values")
+    public void knownValues() {
+        Crc32c crc = new Crc32c();
+        crc.update("123456789".getBytes(StandardCharsets.US_ASCII), 0, 9);
+        assertEquals(0xE3069283L, crc.getValue());
+        crc.reset();
+        crc.update(new byte[32], 0, 32);
+        assertEquals(0x8A9136AAL, crc.getValue());
+        crc.reset();
+        assertEquals(0L, crc.getValue());
+    }
+
+    @Test
+    @DisplayName("Slicing by 8 gives the same value as byte at a time, for any split")
+    public void slicing() {
+        Random random = new Random();
+        for ( int length = 0; length < 100; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            Crc32c whole = new Crc32c();
+            whole.update(bytes, 0, length);
+            Crc32c single = new Crc32c();
+            for ( byte b : bytes ) {
+                single.update(b);
+            }
+            Crc32c split = new Crc32c();
+            int cut = random.nextInt(length + 1);
+            split.update(bytes, 0, cut);
+            split.update(bytes, cut, length - cut);
+            assertEquals(single.getValue(), whole.getValue());
+            assertEquals(single.getValue(), split.getValue());
+        }
+    }
+}
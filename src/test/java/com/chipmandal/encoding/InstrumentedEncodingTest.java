@@ -0,0 +1,91 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedEncodingTest {
+    static Random random = new Random();
+
+    @Test
+    @DisplayName("Calls, bytes, failures and latency histograms are counted per operation")
+    public void counters() {
+        InstrumentedEncoding instrumented = new InstrumentedEncoding(BaseEncoding.Base94, true);
+        byte[] small = new byte[10];
+        byte[] large = new byte[100000];
+        random.nextBytes(small);
+        random.nextBytes(large);
+
+        String encodedSmall = instrumented.encodeString(small);
+        String encodedLarge = instrumented.encodeString(large);
+        assertArrayEquals(small, instrumented.decodeString(encodedSmall));
+        assertArrayEquals(large, instrumented.decodeAscii(instrumented.encodeToAsciiBytes(large)));
+        assertThrows(DecodingException.class, () -> instrumented.decodeString("ab cd"));
+
+        EncodingStats encodeStats = instrumented.encodeStats();
+        assertEquals(3, encodeStats.getCalls());
+        assertEquals(10 + 2 * 100000, encodeStats.getBytesIn());
+        assertEquals(encodedSmall.length() + 2L * encodedLarge.length(), encodeStats.getBytesOut());
+        assertEquals(1, encodeStats.getCalls(EncodingStats.sizeBucket(10)));
+        assertEquals(2, encodeStats.getCalls(EncodingStats.sizeBucket(100000)));
+        assertTrue(encodeStats.getLatencyNanos(EncodingStats.sizeBucket(100000), 0.99) > 0);
+        Map<String, long[]> histograms = encodeStats.getLatencyHistograms();
+        assertEquals(EncodingStats.SIZE_BUCKET_COUNT, histograms.size());
+        assertEquals(2, Arrays.stream(histograms.get("<=262144")).sum());
+        assertEquals(0, Arrays.stream(histograms.get(">4194304")).sum());
+
+        long[] buckets = EncodingStats.getSizeBuckets();
+        assertEquals(EncodingStats.SIZE_BUCKET_COUNT, buckets.length);
+        buckets[0] = 0;
+        assertEquals(64, EncodingStats.getSizeBuckets()[0]);
+
+        EncodingStats decodeStats = instrumented.decodeStats();
+        assertEquals(2, decodeStats.getCalls());
+        assertEquals(1, decodeStats.getFailures());
+        assertEquals(10 + 100000, decodeStats.getBytesOut());
+
+        instrumented.setEnabled(false);
+        instrumented.encodeString(small);
+        assertEquals(3, instrumented.getEncodeCalls());
+
+        instrumented.reset();
+        assertEquals(0, instrumented.getEncodeCalls());
+        assertEquals(0, instrumented.decodeStats().getFailures());
+    }
+
+    @Test
+    @DisplayName("Counters are readable through JMX")
+    public void mbean() throws JMException {
+        InstrumentedEncoding instrumented = new InstrumentedEncoding(Base85.Z85);
+        ObjectName name = instrumented.registerMBean("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            //Off until switched on
+            instrumented.encodeString(new byte[8]);
+            assertEquals(false, server.getAttribute(name, "Enabled"));
+            assertEquals(0L, server.getAttribute(name, "EncodeCalls"));
+
+            server.setAttribute(name, new Attribute("Enabled", true));
+            instrumented.encodeString(new byte[8]);
+            assertEquals(1L, server.getAttribute(name, "EncodeCalls"));
+            assertEquals(10L, server.getAttribute(name, "EncodeBytesOut"));
+            TabularData histograms = (TabularData) server.getAttribute(name, "EncodeLatencyHistograms");
+            assertEquals(EncodingStats.SIZE_BUCKET_COUNT, histograms.size());
+            long[] small = (long[]) histograms.get(new Object[]{"<=64"}).get("value");
+            assertEquals(1, Arrays.stream(small).sum());
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
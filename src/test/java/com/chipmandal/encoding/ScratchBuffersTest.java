@@ -0,0 +1,56 @@
+package com.chipmandal.encoding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchBuffersTest {
+
+    @Test
+    @DisplayName("Size classes are powers of two from 1 KB")
+    public void sizeClass() {
+        assertEquals(ScratchBuffers.MIN_CLASS, ScratchBuffers.sizeClass(0));
+        assertEquals(ScratchBuffers.MIN_CLASS, ScratchBuffers.sizeClass(1024));
+        assertEquals(11, ScratchBuffers.sizeClass(1025));
+        assertEquals(22, ScratchBuffers.sizeClass(1 << 22));
+        assertEquals(23, ScratchBuffers.sizeClass((1 << 22) + 1));
+    }
+
+    @Test
+    @DisplayName("Released buffers are handed out again, oversized ones are not kept")
+    public void reuse() {
+        byte[] bytes = ScratchBuffers.bytes(5000);
+        assertEquals(8192, bytes.length);
+        ScratchBuffers.release(bytes);
+        assertSame(bytes, ScratchBuffers.bytes(6000));
+        ScratchBuffers.release(bytes);
+
+        char[] chars = ScratchBuffers.chars(100);
+        assertEquals(1024, chars.length);
+        ScratchBuffers.release(chars);
+        assertSame(chars, ScratchBuffers.chars(1000));
+        ScratchBuffers.release(chars);
+
+        byte[] large = ScratchBuffers.bytes((1 << 22) + 1);
+        assertEquals((1 << 22) + 1, large.length);
+        ScratchBuffers.release(large);
+        assertNotSame(large, ScratchBuffers.bytes((1 << 22) + 1));
+
+        //Arrays that are not a whole size class are ignored
+        ScratchBuffers.release(new byte[3000]);
+        assertEquals(4096, ScratchBuffers.bytes(3000).length);
+    }
+
+    @Test
+    @DisplayName("Size classes left idle are emptied")
+    public void evictIdle() {
+        byte[] bytes = ScratchBuffers.bytes(2000);
+        ScratchBuffers.release(bytes);
+        ScratchBuffers.evictIdle(System.nanoTime());
+        assertSame(bytes, ScratchBuffers.bytes(2000));
+        ScratchBuffers.release(bytes);
+        ScratchBuffers.evictIdle(System.nanoTime() + ScratchBuffers.IDLE_NANOS);
+        assertNotSame(bytes, ScratchBuffers.bytes(2000));
+    }
+}